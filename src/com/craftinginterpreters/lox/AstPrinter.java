@@ -74,6 +74,21 @@ public class AstPrinter implements Expr.Visitor<String>{
         return null;
     }
 
+    @Override
+    public String visitInlineExpr(Expr.Inline expr) {
+        return null;
+    }
+
+    @Override
+    public String visitIndexExpr(Expr.Index expr) {
+        return null;
+    }
+
+    @Override
+    public String visitIndexSetExpr(Expr.IndexSet expr) {
+        return null;
+    }
+
     String print(Expr expr) {
         return expr.accept(this);
     }
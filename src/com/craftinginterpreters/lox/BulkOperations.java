@@ -0,0 +1,146 @@
+package com.craftinginterpreters.lox;
+
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * @author Javen-Liu
+ * @version 1.0
+ * @date 2026/10/19 22:10
+ * @github https://github.com/Javen-Liu
+ * 数组上的高阶内置函数：sort, sortWith, collect, filter, reduce, forEach。
+ * 解释器不是线程安全的，Lox函数作为回调时总是在当前线程中按顺序调用；
+ * 只有回调是没有副作用的内置函数（或者没有回调）且数组长度达到PARALLEL_MIN时，
+ * 才在ForkJoin公共池中并行执行
+ */
+final class BulkOperations {
+    /**
+     * 并行执行的最小数组长度，通过 -Dlox.parallel.min=n 配置，小于等于0时关闭并行
+     */
+    static final int PARALLEL_MIN = Integer.getInteger("lox.parallel.min", 10000);
+
+    private BulkOperations() {
+    }
+
+    /**
+     * 不带比较函数的原地排序，元素必须都是数字或者都是字符串。
+     * 曾经存放过其他值的数组如果现在只有数字，先转换回double[]再排序
+     */
+    static LoxArray sort(LoxArray array) {
+        boolean parallel = parallel(array, null);
+        if (array.narrow()) {
+            array.sortNumbers(parallel);
+            return array;
+        }
+        for (int i = 0; i < array.size(); i++) {
+            if (!LazyString.isString(array.get(i))) {
+                throw new NativeError("sort() expects an array of numbers or of strings.");
+            }
+        }
+        array.sort(Comparator.comparing(Object::toString), parallel);
+        return array;
+    }
+
+    /**
+     * 按比较函数原地排序，compare(a, b)返回负数、0或正数
+     */
+    static LoxArray sortWith(Interpreter interpreter, LoxArray array, LoxCallable compare) {
+        Comparator<Object> comparator = (a, b) -> {
+            Object result = compare.call(interpreter, new Object[]{a, b});
+            if (!(result instanceof Double)) {
+                throw new NativeError("sortWith() comparator must return a number.");
+            }
+            return Double.compare((double) result, 0);
+        };
+        try {
+            array.sort(comparator, parallel(array, compare));
+        } catch (IllegalArgumentException error) {
+            // TimSort发现比较结果前后矛盾
+            throw new NativeError("sortWith() comparator is inconsistent.");
+        }
+        return array;
+    }
+
+    /**
+     * @return 对每个元素调用function的结果组成的新数组
+     */
+    static LoxArray collect(Interpreter interpreter, LoxArray array, LoxCallable function) {
+        int size = array.size();
+        Object[] results = new Object[size];
+        if (parallel(array, function)) {
+            IntStream.range(0, size).parallel()
+                    .forEach(i -> results[i] = function.call(interpreter, new Object[]{array.get(i)}));
+        } else {
+            for (int i = 0; i < size; i++) {
+                results[i] = function.call(interpreter, new Object[]{array.get(i)});
+            }
+        }
+
+        LoxArray result = new LoxArray(size);
+        for (Object value : results) {
+            result.add(value);
+        }
+        return result;
+    }
+
+    /**
+     * @return predicate结果为真的元素组成的新数组，保持原来的顺序
+     */
+    static LoxArray filter(Interpreter interpreter, LoxArray array, LoxCallable predicate) {
+        int size = array.size();
+        boolean[] keep = new boolean[size];
+        if (parallel(array, predicate)) {
+            IntStream.range(0, size).parallel()
+                    .forEach(i -> keep[i] = test(interpreter, predicate, array.get(i)));
+        } else {
+            for (int i = 0; i < size; i++) {
+                keep[i] = test(interpreter, predicate, array.get(i));
+            }
+        }
+
+        LoxArray result = new LoxArray(8);
+        for (int i = 0; i < size; i++) {
+            if (keep[i]) {
+                result.add(array.get(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 从initial开始依次计算 function(累积值, 元素)。
+     * 不要求function满足结合律，因此总是按顺序执行
+     */
+    static Object reduce(Interpreter interpreter, LoxArray array, LoxCallable function, Object initial) {
+        Object accumulator = initial;
+        for (int i = 0; i < array.size(); i++) {
+            accumulator = function.call(interpreter, new Object[]{accumulator, array.get(i)});
+        }
+        return accumulator;
+    }
+
+    /**
+     * 依次对每个元素调用function，回调的意义在于副作用，因此总是按顺序执行
+     */
+    static void forEach(Interpreter interpreter, LoxArray array, LoxCallable function) {
+        for (int i = 0; i < array.size(); i++) {
+            function.call(interpreter, new Object[]{array.get(i)});
+        }
+    }
+
+    /**************************************************************************/
+
+    /**
+     * 回调为null（不需要回调）或者是没有副作用的内置函数，且数组足够长时并行执行
+     */
+    private static boolean parallel(LoxArray array, LoxCallable callback) {
+        if (PARALLEL_MIN <= 0 || array.size() < PARALLEL_MIN) {
+            return false;
+        }
+        return callback == null || callback instanceof NativeFunction && ((NativeFunction) callback).pure;
+    }
+
+    private static boolean test(Interpreter interpreter, LoxCallable predicate, Object value) {
+        return Interpreter.isTruthy(predicate.call(interpreter, new Object[]{value}));
+    }
+}
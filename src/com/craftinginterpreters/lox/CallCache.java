@@ -0,0 +1,13 @@
+package com.craftinginterpreters.lox;
+
+/**
+ * @author Javen-Liu
+ * @version 1.0
+ * @date 2026/10/19 16:40
+ * @github https://github.com/Javen-Liu
+ * 调用点的单态缓存：记录上一次在该调用点通过可调用性和参数数量检查的被调用者。
+ * 同一调用点的参数个数是固定的，再次调用同一个对象时检查结果必然相同，可以直接跳过
+ */
+final class CallCache {
+    LoxCallable callee;
+}
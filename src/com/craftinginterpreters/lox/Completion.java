@@ -0,0 +1,17 @@
+package com.craftinginterpreters.lox;
+
+/**
+ * @author Javen-Liu
+ * @version 1.0
+ * @date 2026/10/19 17:40
+ * @github https://github.com/Javen-Liu
+ * 语句执行的完成状态，由Interpreter的Stmt visit方法逐层返回：
+ * 循环处理BREAK和CONTINUE，函数调用处理RETURN。
+ * 返回值和尾调用不放在这里，而是暂存在Interpreter中，由调用边界取走，所以执行语句不需要分配对象
+ */
+enum Completion {
+    NORMAL,
+    BREAK,
+    CONTINUE,
+    RETURN
+}
@@ -25,6 +25,9 @@ abstract class Expr{
         R visitUnaryExpr(Unary expr);
         R visitVariableExpr(Variable expr);
         R visitKeywordExpr(Keyword expr);
+        R visitInlineExpr(Inline expr);
+        R visitIndexExpr(Index expr);
+        R visitIndexSetExpr(IndexSet expr);
     }
 
     static class Assign extends Expr{
@@ -46,6 +49,7 @@ abstract class Expr{
         final Expr left;
         final Token operator;
         final Expr right;
+        final TypeFeedback feedback = new TypeFeedback();
 
         Binary(Expr left, Token operator, Expr right) {
             this.left = left;
@@ -63,6 +67,7 @@ abstract class Expr{
         final Expr callee;
         final Token paren;
         final List<Expr> arguments;
+        final CallCache cache = new CallCache();
 
         Call(Expr callee, Token paren, List<Expr> arguments) {
             this.callee = callee;
@@ -79,6 +84,7 @@ abstract class Expr{
     static class Get extends Expr{
         final Expr object;
         final Token name;
+        final PropertyCache cache = new PropertyCache();
 
         Get(Expr object, Token name) {
             this.object = object;
@@ -138,6 +144,7 @@ abstract class Expr{
         final Expr object;
         final Token name;
         final Expr value;
+        final PropertyCache cache = new PropertyCache();
 
         Set(Expr object, Token name, Expr value) {
             this.object = object;
@@ -154,6 +161,7 @@ abstract class Expr{
     static class Super extends Expr{
         final Token keyword;
         final Token method;
+        final SuperBinding binding = new SuperBinding();
 
         Super(Token keyword, Token method) {
             this.keyword = keyword;
@@ -220,4 +228,57 @@ abstract class Expr{
         }
     }
 
+    static class Inline extends Expr{
+        final Call call;
+        final Stmt.Function function;
+        final Expr body;
+
+        Inline(Call call, Stmt.Function function, Expr body) {
+            this.call = call;
+            this.function = function;
+            this.body = body;
+        }
+
+        @Override
+        <R> R accept(Visitor<R> visitor) {
+            return visitor.visitInlineExpr(this);
+        }
+    }
+
+    static class Index extends Expr{
+        final Expr object;
+        final Token bracket;
+        final Expr index;
+
+        Index(Expr object, Token bracket, Expr index) {
+            this.object = object;
+            this.bracket = bracket;
+            this.index = index;
+        }
+
+        @Override
+        <R> R accept(Visitor<R> visitor) {
+            return visitor.visitIndexExpr(this);
+        }
+    }
+
+    static class IndexSet extends Expr{
+        final Expr object;
+        final Token bracket;
+        final Expr index;
+        final Expr value;
+
+        IndexSet(Expr object, Token bracket, Expr index, Expr value) {
+            this.object = object;
+            this.bracket = bracket;
+            this.index = index;
+            this.value = value;
+        }
+
+        @Override
+        <R> R accept(Visitor<R> visitor) {
+            return visitor.visitIndexSetExpr(this);
+        }
+    }
+
 }
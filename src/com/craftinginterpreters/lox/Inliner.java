@@ -0,0 +1,195 @@
+package com.craftinginterpreters.lox;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author Javen-Liu
+ * @version 1.0
+ * @date 2026/10/19 13:05
+ * @github https://github.com/Javen-Liu
+ * 记录可以被内联的函数：只有一条 return 语句、表达式足够小、不递归、
+ * 在全局作用域声明并且从未被重新赋值或重复声明的函数。
+ * 由Resolver在解析时填充，由Optimizer在后台线程中读取，所以使用并发容器
+ */
+class Inliner implements Expr.Visitor<Integer> {
+    /**
+     * 可内联函数体的最大节点数，通过 -Dlox.inline.size=n 配置
+     */
+    static final int MAX_SIZE = Integer.getInteger("lox.inline.size", 12);
+    private static final int TOO_BIG = MAX_SIZE + 1;
+
+    private final Map<String, Stmt.Function> candidates = new ConcurrentHashMap<>();
+    private final Set<String> poisoned = ConcurrentHashMap.newKeySet();
+    private final Set<Expr> globalCallees = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 当前正在测量的函数名，用于发现递归
+     */
+    private String self;
+
+    /**
+     * 全局作用域中声明了一个函数
+     */
+    void declare(Stmt.Function function) {
+        String name = function.name.lexeme;
+        if (poisoned.contains(name) || candidates.containsKey(name)) {
+            poison(name);
+            return;
+        }
+
+        if (body(function) != null) {
+            candidates.put(name, function);
+        } else {
+            poison(name);
+        }
+    }
+
+    /**
+     * 全局变量被重新声明或赋值，同名的函数不能再被内联
+     */
+    void poison(String name) {
+        poisoned.add(name);
+        candidates.remove(name);
+    }
+
+    /**
+     * 记录一个指向全局变量的被调用者
+     */
+    void globalCallee(Expr.Variable callee) {
+        globalCallees.add(callee);
+    }
+
+    /**
+     * 尝试将调用替换为内联节点
+     * @param call 调用表达式
+     * @return 内联节点，不能内联时返回null
+     */
+    Expr.Inline inline(Expr.Call call) {
+        if (!(call.callee instanceof Expr.Variable) || !globalCallees.contains(call.callee)) {
+            return null;
+        }
+
+        Stmt.Function function = candidates.get(((Expr.Variable) call.callee).name.lexeme);
+        if (function == null || function.params.size() != call.arguments.size()) {
+            return null;
+        }
+
+        return new Expr.Inline(call, function, ((Stmt.Return) function.body.get(0)).value);
+    }
+
+    /**
+     * 获取函数可内联的函数体
+     * @return 函数体中 return 的表达式，不满足内联条件时返回null
+     */
+    private Expr body(Stmt.Function function) {
+        if (function.body.size() != 1 || !(function.body.get(0) instanceof Stmt.Return)) {
+            return null;
+        }
+
+        Expr value = ((Stmt.Return) function.body.get(0)).value;
+        if (value == null) {
+            return null;
+        }
+
+        self = function.name.lexeme;
+        return value.accept(this) <= MAX_SIZE ? value : null;
+    }
+
+    /**
+     * Expr的visit方法，返回表达式的节点数，不能内联的表达式返回TOO_BIG
+     */
+
+    private int size(Expr... exprs) {
+        int size = 1;
+        for (Expr expr : exprs) {
+            size = Math.min(TOO_BIG, size + expr.accept(this));
+        }
+        return size;
+    }
+
+    @Override
+    public Integer visitAssignExpr(Expr.Assign expr) {
+        return self.equals(expr.name.lexeme) ? TOO_BIG : size(expr.value);
+    }
+
+    @Override
+    public Integer visitBinaryExpr(Expr.Binary expr) {
+        return size(expr.left, expr.right);
+    }
+
+    @Override
+    public Integer visitCallExpr(Expr.Call expr) {
+        int size = size(expr.callee);
+        for (Expr argument : expr.arguments) {
+            size = Math.min(TOO_BIG, size + argument.accept(this));
+        }
+        return size;
+    }
+
+    @Override
+    public Integer visitGetExpr(Expr.Get expr) {
+        return size(expr.object);
+    }
+
+    @Override
+    public Integer visitGroupingExpr(Expr.Grouping expr) {
+        return size(expr.expression);
+    }
+
+    @Override
+    public Integer visitLiteralExpr(Expr.Literal expr) {
+        return 1;
+    }
+
+    @Override
+    public Integer visitLogicExpr(Expr.Logic expr) {
+        return size(expr.left, expr.right);
+    }
+
+    @Override
+    public Integer visitSetExpr(Expr.Set expr) {
+        return size(expr.object, expr.value);
+    }
+
+    @Override
+    public Integer visitSuperExpr(Expr.Super expr) {
+        return TOO_BIG;
+    }
+
+    @Override
+    public Integer visitThisExpr(Expr.This expr) {
+        return TOO_BIG;
+    }
+
+    @Override
+    public Integer visitUnaryExpr(Expr.Unary expr) {
+        return size(expr.right);
+    }
+
+    @Override
+    public Integer visitVariableExpr(Expr.Variable expr) {
+        return self.equals(expr.name.lexeme) ? TOO_BIG : 1;
+    }
+
+    @Override
+    public Integer visitKeywordExpr(Expr.Keyword expr) {
+        return TOO_BIG;
+    }
+
+    @Override
+    public Integer visitInlineExpr(Expr.Inline expr) {
+        return TOO_BIG;
+    }
+
+    @Override
+    public Integer visitIndexExpr(Expr.Index expr) {
+        return size(expr.object, expr.index);
+    }
+
+    @Override
+    public Integer visitIndexSetExpr(Expr.IndexSet expr) {
+        return size(expr.object, expr.index, expr.value);
+    }
+}
@@ -2,10 +2,11 @@ package com.craftinginterpreters.lox;
 
 import jdk.nashorn.internal.parser.Lexer;
 
-import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * @author Javen-Liu
@@ -13,12 +14,52 @@ import java.util.Map;
  * @date 2020/6/22 21:23
  * @github https://github.com/Javen-Liu
  */
-public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void>{
+public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Completion>{
+    /**
+     * 执行Lox代码的线程栈大小（字节），通过 -Dlox.stack.size=n 配置，
+     * 小于等于0时直接在当前线程中执行。
+     * 非尾位置的调用仍然占用Java栈帧，没有改为堆上的帧栈，所以递归深度受栈大小限制
+     */
+    static final long STACK_SIZE = Long.getLong("lox.stack.size", 0);
+
+    /**
+     * Lox调用的最大深度，通过 -Dlox.max.depth=n 配置
+     */
+    static final int MAX_DEPTH = Integer.getInteger("lox.max.depth", 100000);
+
+    /**
+     * 无参数调用共享的参数数组
+     */
+    static final Object[] NO_ARGUMENTS = new Object[0];
+
     final Environment globals = new Environment();
     private Environment environment = globals;
     private final Map<Expr, Integer> locals = new HashMap<>();
-    private boolean isBreak = false;
-    private boolean isContinue = false;
+    private final Set<Expr> tailCalls = new HashSet<>();
+    private final Map<Stmt.Class, List<Expr.Super>> supers = new HashMap<>();
+    final TierManager tiers = new TierManager(this);
+    final Inliner inliner = new Inliner();
+    final OutputSink output = new OutputSink(System.out);
+    /**
+     * 剖析信息，未开启剖析模式时为null；recorder只在需要记录时与profile相同，否则为null。
+     * 记录时需要经过通用路径才能看到每个值，所以快速路径只在recorder为null时开启
+     */
+    Profile profile = null;
+    Profile recorder = null;
+    private int depth = 0;
+
+    /**
+     * evaluateNumber遇到非数字时，用这两个字段把真正的值交给调用者
+     */
+    private boolean nonNumeric = false;
+    private Object nonNumericValue = null;
+
+    /**
+     * RETURN完成状态向上传递时，返回值或尾调用暂存在这里，由LoxFunction在调用边界取走
+     */
+    private Object returnValue = null;
+    private LoxFunction tailCallee = null;
+    private Object[] tailArguments = null;
 
     Interpreter(){
         globals.define("clock", new LoxCallable() {
@@ -29,6 +70,11 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void>{
 
             @Override
             public Object call(Interpreter interpreter, List<Object> arguments) {
+                return call(interpreter, NO_ARGUMENTS);
+            }
+
+            @Override
+            public Object call(Interpreter interpreter, Object[] arguments) {
                 return (double)System.currentTimeMillis() / 1000d;
             }
 
@@ -37,15 +83,42 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void>{
                 return "<native fn>";
             }
         });
+        Natives.define(globals);
+    }
+
+    void useProfile(Profile profile) {
+        this.profile = profile;
+        this.recorder = profile.isRecording() ? profile : null;
     }
 
     void interpret(List<Stmt> statements) {
+        if (STACK_SIZE <= 0) {
+            run(statements);
+            return;
+        }
+
+        // 在栈空间可配置的线程中执行，递归深度只受内存和MAX_DEPTH限制
+        Thread thread = new Thread(null, () -> run(statements), "lox-main", STACK_SIZE);
+        thread.start();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run(List<Stmt> statements) {
         try {
             for (Stmt statement : statements) {
                 execute(statement);
             }
         } catch (RuntimeError error) {
+            // 先输出错误发生前print的内容，保证与错误信息的先后顺序
+            output.flush();
             Lox.runtimeError(error);
+        } finally {
+            output.flush();
+            depth = 0;
         }
     }
 
@@ -73,9 +146,39 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void>{
 
     @Override
     public Object visitBinaryExpr(Expr.Binary expr) {
+        // 剖析信息表明从未见过两个数字的位置直接走通用路径
+        if (recorder == null && !expr.feedback.generic) {
+            switch (expr.operator.type) {
+                case MINUS:
+                case PLUS:
+                case STAR:
+                case SLASH:
+                    double value = arithmetic(expr);
+                    return nonNumeric ? takeNonNumeric() : Numbers.box(value);
+                case GREATER:
+                case GREATER_EQUAL:
+                case LESS:
+                case LESS_EQUAL:
+                    return compare(expr);
+                case EQUAL_EQUAL:
+                case BANG_EQUAL:
+                    if (expr.feedback.numeric) {
+                        return equality(expr);
+                    }
+                    break;
+                default:
+            }
+        }
+
         Object left = evaluate(expr.left);
         Object right = evaluate(expr.right);
+        if (recorder != null) {
+            recorder.binary(expr, left, right);
+        }
+        return binary(expr, left, right);
+    }
 
+    private Object binary(Expr.Binary expr, Object left, Object right) {
         switch (expr.operator.type) {
             case GREATER:
                 checkNumberOperand(expr.operator, left, right);
@@ -95,10 +198,10 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void>{
                 return isEqual(left, right);
             case MINUS:
                 checkNumberOperand(expr.operator, left, right);
-                return (double)left - (double)right;
+                return Numbers.box((double)left - (double)right);
             case PLUS:
                 if (isDoubleNum(left, right)) {
-                    return (double)left + (double)right;
+                    return Numbers.box((double)left + (double)right);
                 }
                 // if (left instanceof String && right instanceof String) {
                 //     return (String) left + (String) right;
@@ -108,25 +211,230 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void>{
                 return transformToString(left, right);
             case STAR:
                 checkNumberOperand(expr.operator, left, right);
-                return (double)left * (double)right;
+                return Numbers.box((double)left * (double)right);
             case SLASH:
                 checkNumberOperand(expr.operator, left, right);
                 if ((double) right == 0) {
                     throw new RuntimeError(expr.operator, "divisor should not be 0");
                 }
-                return (double)left / (double)right;
+                return Numbers.box((double)left / (double)right);
             default:
         }
         return null;
     }
 
+    /**
+     * 数值求值，算术运算和比较运算之间直接传递double，只有结果离开表达式时才装箱。
+     * 结果不是数字时返回任意值并设置nonNumeric，调用者需要立即检查并取出真正的值
+     */
+
+    private double evaluateNumber(Expr expr) {
+        if (expr instanceof Expr.Binary) {
+            switch (((Expr.Binary) expr).operator.type) {
+                case MINUS:
+                case PLUS:
+                case STAR:
+                case SLASH:
+                    if (recorder == null && !((Expr.Binary) expr).feedback.generic) {
+                        return arithmetic((Expr.Binary) expr);
+                    }
+                    break;
+                default:
+            }
+        } else if (expr instanceof Expr.Literal) {
+            return number(((Expr.Literal) expr).value);
+        } else if (expr instanceof Expr.Grouping) {
+            return evaluateNumber(((Expr.Grouping) expr).expression);
+        } else if (expr instanceof Expr.Index) {
+            // 数字数组的元素直接以double参与运算，不装箱
+            Expr.Index index = (Expr.Index) expr;
+            LoxArray array = array(index.bracket, evaluate(index.object));
+            int i = index(index.bracket, array, index.index);
+            if (array.isNumeric()) {
+                return array.getNumber(i);
+            }
+            return number(array.get(i));
+        } else if (expr instanceof Expr.Unary
+                && ((Expr.Unary) expr).operator.type == TokenType.MINUS) {
+            Expr.Unary unary = (Expr.Unary) expr;
+            double right = evaluateNumber(unary.right);
+            if (nonNumeric) {
+                takeNonNumeric();
+                throw new RuntimeError(unary.operator, "Operand must be a number.");
+            }
+            return -right;
+        }
+
+        return number(evaluate(expr));
+    }
+
+    private double arithmetic(Expr.Binary expr) {
+        double left = evaluateNumber(expr.left);
+        if (nonNumeric) {
+            Object value = takeNonNumeric();
+            return number(binary(expr, value, evaluate(expr.right)));
+        }
+
+        double right = evaluateNumber(expr.right);
+        if (nonNumeric) {
+            return number(binary(expr, left, takeNonNumeric()));
+        }
+
+        switch (expr.operator.type) {
+            case MINUS:
+                return left - right;
+            case PLUS:
+                return left + right;
+            case STAR:
+                return left * right;
+            default:
+                if (right == 0) {
+                    throw new RuntimeError(expr.operator, "divisor should not be 0");
+                }
+                return left / right;
+        }
+    }
+
+    private Object compare(Expr.Binary expr) {
+        double left = evaluateNumber(expr.left);
+        if (nonNumeric) {
+            Object value = takeNonNumeric();
+            return binary(expr, value, evaluate(expr.right));
+        }
+
+        double right = evaluateNumber(expr.right);
+        if (nonNumeric) {
+            return binary(expr, left, takeNonNumeric());
+        }
+
+        switch (expr.operator.type) {
+            case GREATER:
+                return left > right;
+            case GREATER_EQUAL:
+                return left >= right;
+            case LESS:
+                return left < right;
+            default:
+                return left <= right;
+        }
+    }
+
+    /**
+     * 剖析信息表明只比较过数字的 == 和 !=，与isEqual一致按Double.equals的语义比较
+     */
+    private Object equality(Expr.Binary expr) {
+        double left = evaluateNumber(expr.left);
+        if (nonNumeric) {
+            Object value = takeNonNumeric();
+            return binary(expr, value, evaluate(expr.right));
+        }
+
+        double right = evaluateNumber(expr.right);
+        if (nonNumeric) {
+            return binary(expr, left, takeNonNumeric());
+        }
+
+        boolean equal = Double.doubleToLongBits(left) == Double.doubleToLongBits(right);
+        return expr.operator.type == TokenType.EQUAL_EQUAL ? equal : !equal;
+    }
+
+    private double number(Object value) {
+        if (value instanceof Double) {
+            return (double) value;
+        }
+
+        nonNumeric = true;
+        nonNumericValue = value;
+        return 0;
+    }
+
+    private Object takeNonNumeric() {
+        Object value = nonNumericValue;
+        nonNumeric = false;
+        nonNumericValue = null;
+        return value;
+    }
+
     @Override
     public Object visitCallExpr(Expr.Call expr) {
-        Object callee = evaluate(expr.callee);
+        if (expr.callee instanceof Expr.Get && recorder == null) {
+            return invokeMethod(expr, (Expr.Get) expr.callee);
+        }
+        if (expr.callee instanceof Expr.Super) {
+            return invokeSuper(expr, (Expr.Super) expr.callee);
+        }
+        return call(expr, evaluate(expr.callee));
+    }
 
-        List<Object> arguments = new ArrayList<>();
-        for (Expr argument : expr.arguments) {
-            arguments.add(evaluate(argument));
+    private Object call(Expr.Call expr, Object callee) {
+        Object[] arguments = arguments(expr, callee);
+        return invoke(expr, (LoxCallable) callee, null, arguments);
+    }
+
+    /**
+     * obj.m(...) 形式的调用：查找到方法后直接以obj作为 this 调用，
+     * 不创建绑定后的LoxFunction；属性是字段或者obj不是实例时按普通调用处理
+     */
+    private Object invokeMethod(Expr.Call expr, Expr.Get get) {
+        Object object = evaluate(get.object);
+        if (!(object instanceof LoxInstance)) {
+            return call(expr, property(get, object));
+        }
+
+        LoxInstance instance = (LoxInstance) object;
+        LoxFunction method = get.cache.method(instance, get.name);
+        if (method == null) {
+            return call(expr, get.cache.get(instance, get.name));
+        }
+
+        Object[] arguments = arguments(expr, method);
+        return invoke(expr, method, instance, arguments);
+    }
+
+    /**
+     * 执行一次调用并记录调用深度，超过MAX_DEPTH或Java栈溢出时
+     * 转换为指向该调用所在行的RuntimeError
+     * @param receiver 直接调用方法时的 this，其他情况为null
+     */
+    private Object invoke(Expr.Call expr, LoxCallable callee,
+                          LoxInstance receiver, Object[] arguments) {
+        if (depth >= MAX_DEPTH) {
+            throw new RuntimeError(expr.paren, "Stack overflow.");
+        }
+
+        depth++;
+        try {
+            if (receiver != null) {
+                return ((LoxFunction) callee).call(this, receiver, arguments);
+            }
+            return callee.call(this, arguments);
+        } catch (NativeError error) {
+            throw new RuntimeError(expr.paren, error.getMessage());
+        } catch (StackOverflowError error) {
+            throw new RuntimeError(expr.paren, "Stack overflow.");
+        } finally {
+            depth--;
+        }
+    }
+
+    /**
+     * 按顺序求值调用的参数，并检查被调用者是否可调用以及参数数量。
+     * 调用点缓存了上一次检查通过的被调用者，再次调用同一个对象时跳过检查
+     * @return 参数数组，无参数时为共享的空数组
+     */
+    private Object[] arguments(Expr.Call expr, Object callee) {
+        if (recorder != null) {
+            recorder.call(expr, callee);
+        }
+
+        int count = expr.arguments.size();
+        Object[] arguments = count == 0 ? NO_ARGUMENTS : new Object[count];
+        for (int i = 0; i < count; i++) {
+            arguments[i] = evaluate(expr.arguments.get(i));
+        }
+
+        if (callee != null && expr.cache.callee == callee) {
+            return arguments;
         }
 
         if (!(callee instanceof LoxCallable)) {
@@ -135,20 +443,28 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void>{
 
         LoxCallable function = (LoxCallable)callee;
 
-        if (arguments.size() != function.arity()) {
+        if (count != function.arity()) {
             throw new RuntimeError(expr.paren, "Expect" +
                     function.arity() + " arguments but got " +
-                    arguments.size() + ".");
+                    count + ".");
         }
 
-        return function.call(this, arguments);
+        expr.cache.callee = function;
+        return arguments;
     }
 
     @Override
     public Object visitGetExpr(Expr.Get expr) {
         Object object = evaluate(expr.object);
+        if (recorder != null) {
+            recorder.get(expr, object);
+        }
+        return property(expr, object);
+    }
+
+    private Object property(Expr.Get expr, Object object) {
         if (object instanceof LoxInstance) {
-            return ((LoxInstance) object).get(expr.name);
+            return expr.cache.get((LoxInstance) object, expr.name);
         }
 
         if (object instanceof LoxClass) {
@@ -160,7 +476,7 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void>{
 
     @Override
     public Object visitGroupingExpr(Expr.Grouping expr) {
-        return expr.expression;
+        return evaluate(expr.expression);
     }
 
     @Override
@@ -194,26 +510,46 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void>{
         }
 
         Object value = evaluate(expr.value);
-        ((LoxInstance) object).set(expr.name, value);
+        expr.cache.set((LoxInstance) object, expr.name, value);
         return null;
     }
 
     @Override
     public Object visitSuperExpr(Expr.Super expr) {
-        int distance = locals.get(expr);
-        LoxClass superclass = (LoxClass)environment.getAt(distance, "super");
+        return superMethod(expr).bind(superReceiver(expr));
+    }
 
-        LoxInstance object = (LoxInstance) environment.
-                getAt(distance - 1, "this");
+    /**
+     * super.m(...) 形式的调用：直接以当前的 this 调用父类方法，不创建绑定后的LoxFunction
+     */
+    private Object invokeSuper(Expr.Call expr, Expr.Super callee) {
+        LoxFunction method = superMethod(callee);
+        LoxInstance receiver = superReceiver(callee);
+        Object[] arguments = arguments(expr, method);
+        return invoke(expr, method, receiver, arguments);
+    }
 
-        LoxFunction method = superclass.findMethod(expr.method.lexeme);
+    /**
+     * 获取 super 表达式指向的父类方法，类定义时已绑定的直接返回，否则从环境中查找父类
+     */
+    private LoxFunction superMethod(Expr.Super expr) {
+        LoxFunction method;
+        if (expr.binding.isBound()) {
+            method = expr.binding.method;
+        } else {
+            LoxClass superclass = (LoxClass)environment.getAt(expr.binding.distance, "super");
+            method = superclass.findMethod(expr.method.lexeme);
+        }
 
         if (method == null) {
             throw new RuntimeError(expr.method,
                     "Undefined property '" + expr.method.lexeme + "'.");
         }
+        return method;
+    }
 
-        return method.bind(object);
+    private LoxInstance superReceiver(Expr.Super expr) {
+        return (LoxInstance) environment.getAt(expr.binding.distance - 1, "this");
     }
 
     @Override
@@ -231,17 +567,19 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void>{
                 return !isTruthy(right);
             case MINUS:
                 checkNumberOperand(expr.operator, right);
-                return -(double)right;
+                return Numbers.box(-(double)right);
             case MINUS_MINUS:
                 checkNumberOperand(expr.operator, right);
                 identifier = (Expr.Variable) expr.right;
-                environment.assign(identifier.name, (double)environment.get(identifier.name) - 1);
-                return (double)right - 1;
+                environment.assign(identifier.name,
+                        Numbers.box((double)environment.get(identifier.name) - 1));
+                return Numbers.box((double)right - 1);
             case PLUS_PLUS:
                 checkNumberOperand(expr.operator, right);
                 identifier = (Expr.Variable) expr.right;
-                environment.assign(identifier.name, (double)environment.get(identifier.name) + 1);
-                return (double)right + 1;
+                environment.assign(identifier.name,
+                        Numbers.box((double)environment.get(identifier.name) + 1));
+                return Numbers.box((double)right + 1);
             default:
         }
 
@@ -255,22 +593,97 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void>{
 
     @Override
     public Object visitKeywordExpr(Expr.Keyword expr) {
-        if (TokenType.BREAK == expr.name.type) {
-            isBreak = true;
+        // break和continue只能作为单独的语句出现，由visitExpressionStmt处理，见Resolver
+        return null;
+    }
+
+    @Override
+    public Object visitInlineExpr(Expr.Inline expr) {
+        Object callee = evaluate(expr.call.callee);
+
+        // 函数在运行时已经不是内联时的那一个（比如尚未声明），退回普通调用
+        if (recorder != null || !(callee instanceof LoxFunction)
+                || !((LoxFunction) callee).isDeclaredBy(expr.function)) {
+            return call(expr.call, callee);
         }
 
-        if (TokenType.CONTINUE == expr.name.type) {
-            isContinue = true;
+        // 参数按顺序在调用者的环境中求值，函数体在以globals为外层的新环境中求值
+        Environment frame = new Environment(globals);
+        List<Token> params = expr.function.params;
+        for (int i = 0; i < params.size(); i++) {
+            frame.define(params.get(i).lexeme, evaluate(expr.call.arguments.get(i)));
         }
 
-        return null;
+        Environment previous = this.environment;
+        try {
+            this.environment = frame;
+            return evaluate(expr.body);
+        } finally {
+            this.environment = previous;
+        }
+    }
+
+    @Override
+    public Object visitIndexExpr(Expr.Index expr) {
+        LoxArray array = array(expr.bracket, evaluate(expr.object));
+        return array.get(index(expr.bracket, array, expr.index));
+    }
+
+    @Override
+    public Object visitIndexSetExpr(Expr.IndexSet expr) {
+        LoxArray array = array(expr.bracket, evaluate(expr.object));
+        double index = indexValue(expr.bracket, expr.index);
+        // 右侧可能改变数组的长度，求值之后再检查下标范围
+        Object value = evaluate(expr.value);
+        array.set(inRange(expr.bracket, array, index), value);
+        return value;
+    }
+
+    private LoxArray array(Token bracket, Object object) {
+        if (!(object instanceof LoxArray)) {
+            throw new RuntimeError(bracket, "Only arrays can be indexed.");
+        }
+        return (LoxArray) object;
+    }
+
+    /**
+     * 求值并检查下标，下标以double求值，不装箱
+     */
+    private int index(Token bracket, LoxArray array, Expr index) {
+        return inRange(bracket, array, indexValue(bracket, index));
+    }
+
+    /**
+     * 求值下标并检查是否为整数
+     */
+    private double indexValue(Token bracket, Expr index) {
+        double value = evaluateNumber(index);
+        if (nonNumeric) {
+            takeNonNumeric();
+            throw new RuntimeError(bracket, "Array index must be a number.");
+        }
+        if (value != Math.floor(value)) {
+            throw new RuntimeError(bracket, "Array index must be an integer.");
+        }
+        return value;
+    }
+
+    /**
+     * 检查下标是否在数组当前的长度范围内
+     */
+    private int inRange(Token bracket, LoxArray array, double value) {
+        if (value < 0 || value >= array.size()) {
+            throw new RuntimeError(bracket, "Array index " +
+                    Numbers.format(value) + " out of range.");
+        }
+        return (int) value;
     }
 
     /**************************************************************************/
 
 
 
-    private boolean isTruthy(Object object) {
+    static boolean isTruthy(Object object) {
         if (object == null) {
             return false;
         }
@@ -285,12 +698,17 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void>{
     }
 
     private boolean isEqual(Object l, Object r) {
-        if (l == null && r == null) {
+        // 驻留的字符串和缓存的数字在内容相同时通常就是同一个对象
+        if (l == r) {
             return true;
         }
         if (l == null) {
             return false;
         }
+        if (l instanceof LazyString || r instanceof LazyString) {
+            return LazyString.contentEquals(l, r);
+        }
+        // vector和dict不可变，按内容比较
         return l.equals(r);
     }
 
@@ -308,38 +726,32 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void>{
         throw new RuntimeError(operator, "Operand must be a number.");
     }
 
-    private String stringify(Object object) {
+    static String stringify(Object object) {
         if (object == null) {
             return "nil";
         }
 
         if (object instanceof Double) {
-            String text = object.toString();
-            if (text.endsWith(".0")) {
-                text = text.substring(0, text.length() - 2);
-            }
-            return text;
+            return Numbers.format((double) object);
         }
 
         return object.toString();
     }
 
-    private String transformToString(Object left, Object right) {
-        String str;
-        Object num;
-        boolean stringFirst = false;
-
+    /**
+     * 字符串拼接，结果较长时返回StringRope，左操作数是StringRope时直接在其后追加
+     */
+    private Object transformToString(Object left, Object right) {
         if (left instanceof Double) {
-            str = String.valueOf(left);
-            num = right;
-            stringFirst = true;
-        }else{
-            str = String.valueOf(right);
-            num = left;
+            return StringRope.concat(Numbers.format((double) left), String.valueOf(right));
+        }
+        if (right instanceof Double) {
+            return StringRope.concat(left, (double) right);
         }
 
+        String str = String.valueOf(right);
         str = str.endsWith(".0") ? str.substring(0,str.length()-2) : str;
-        return stringFirst ? str + num : num + str;
+        return StringRope.concat(left, str);
     }
 
     private Object lookUpVariable(Token name, Expr expr) {
@@ -355,42 +767,95 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void>{
      * Stmt的visit方法
      */
 
-    private void execute(Stmt statement) {
-        statement.accept(this);
+    private Completion execute(Stmt statement) {
+        return statement.accept(this);
     }
 
     void resolve(Expr expr, int depth) {
         locals.put(expr, depth);
     }
 
+    /**
+     * 标记一个处于尾位置的调用，即 return f(...) 中的 f(...)
+     */
+    void resolveTailCall(Expr.Call call) {
+        tailCalls.add(call);
+    }
+
+    /**
+     * 记录类的方法中出现的 super 表达式，在类定义时绑定到父类的方法
+     */
+    void resolveSupers(Stmt.Class stmt, List<Expr.Super> exprs) {
+        supers.put(stmt, exprs);
+    }
+
+    /**
+     * 优化后的语法树中复制出的节点沿用原节点的作用域距离和尾调用标记
+     * @param aliases 新节点 -> 原节点
+     */
+    void resolveAliases(Map<Expr, Expr> aliases) {
+        for (Map.Entry<Expr, Expr> alias : aliases.entrySet()) {
+            Integer distance = locals.get(alias.getValue());
+            if (distance != null) {
+                locals.put(alias.getKey(), distance);
+            }
+            if (tailCalls.contains(alias.getValue())) {
+                tailCalls.add(alias.getKey());
+            }
+        }
+    }
+
     @Override
-    public Void visitBlockStmt(Stmt.Block stmt) {
-        executeBlock(stmt.statements, new Environment(environment));
-        return null;
+    public Completion visitBlockStmt(Stmt.Block stmt) {
+        return executeBlock(stmt.statements, new Environment(environment));
     }
 
-    void executeBlock(List<Stmt> statements, Environment environment) {
+    /**
+     * 依次执行语句，遇到非NORMAL的完成状态时停止并将其返回
+     */
+    Completion executeBlock(List<Stmt> statements, Environment environment) {
         Environment previous = this.environment;
         try{
             this.environment = environment;
 
             for (Stmt statement : statements) {
-                if (isContinue) {
-                    isContinue = false;
-                    return;
-                }
-                if (isBreak) {
-                    return;
+                Completion completion = execute(statement);
+                if (completion != Completion.NORMAL) {
+                    return completion;
                 }
-                execute(statement);
             }
+            return Completion.NORMAL;
         } finally {
             this.environment = previous;
         }
     }
 
+    /**
+     * 取走RETURN完成状态携带的返回值
+     */
+    Object takeReturnValue() {
+        Object value = returnValue;
+        returnValue = null;
+        return value;
+    }
+
+    /**
+     * 取走尾调用的被调用者，没有尾调用时返回null；参数随后通过takeTailArguments取走
+     */
+    LoxFunction takeTailCallee() {
+        LoxFunction callee = tailCallee;
+        tailCallee = null;
+        return callee;
+    }
+
+    Object[] takeTailArguments() {
+        Object[] arguments = tailArguments;
+        tailArguments = null;
+        return arguments;
+    }
+
     @Override
-    public Void visitClassStmt(Stmt.Class stmt) {
+    public Completion visitClassStmt(Stmt.Class stmt) {
         Object superclass = null;
         if (stmt.superclass != null) {
             superclass = evaluate(stmt.superclass);
@@ -421,73 +886,146 @@ public class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void>{
         }
 
         LoxClass klass = new LoxClass(stmt.name.lexeme, (LoxClass)superclass, methods, staticMethods);
+        if (profile != null) {
+            profile.defined(klass);
+            for (LoxFunction function : methods.values()) {
+                profile.defined(function);
+            }
+            for (LoxFunction function : staticMethods.values()) {
+                profile.defined(function);
+            }
+        }
+
+        // 父类在类定义时已经确定，super.m 直接绑定到父类展平后的方法表中的方法
+        if (superclass != null) {
+            for (Expr.Super expr : supers.get(stmt)) {
+                expr.binding.bind((LoxClass) superclass, expr.method.lexeme, locals.get(expr));
+            }
+        }
 
         if (superclass != null) {
             environment = environment.enclosing;
         }
 
         environment.assign(stmt.name, klass);
-        return null;
+        return Completion.NORMAL;
     }
 
     @Override
-    public Void visitExpressionStmt(Stmt.Expression stmt) {
+    public Completion visitExpressionStmt(Stmt.Expression stmt) {
+        if (stmt.expression instanceof Expr.Keyword) {
+            return ((Expr.Keyword) stmt.expression).name.type == TokenType.BREAK ?
+                    Completion.BREAK : Completion.CONTINUE;
+        }
+
         evaluate(stmt.expression);
-        return null;
+        return Completion.NORMAL;
     }
 
     @Override
-    public Void visitFunctionStmt(Stmt.Function stmt) {
+    public Completion visitFunctionStmt(Stmt.Function stmt) {
         LoxFunction function = new LoxFunction(stmt, environment, false);
+        if (profile != null) {
+            profile.defined(function);
+        }
         environment.define(stmt.name.lexeme, function);
-        return null;
+        return Completion.NORMAL;
     }
 
     @Override
-    public Void visitIfStmt(Stmt.If stmt) {
+    public Completion visitIfStmt(Stmt.If stmt) {
         if (isTruthy(evaluate(stmt.condition))) {
-            execute(stmt.thenBranch);
+            return execute(stmt.thenBranch);
         } else if (stmt.elseBranch != null) {
-            execute(stmt.elseBranch);
+            return execute(stmt.elseBranch);
         }
-        return null;
+        return Completion.NORMAL;
     }
 
     @Override
-    public Void visitPrintStmt(Stmt.Print stmt) {
+    public Completion visitPrintStmt(Stmt.Print stmt) {
         Object value = evaluate(stmt.expression);
-        System.out.println(stringify(value));
-        return null;
+        if (value instanceof Double) {
+            output.println((double) value);
+        } else if (value instanceof LazyString) {
+            output.println((LazyString) value);
+        } else {
+            output.println(stringify(value));
+        }
+        return Completion.NORMAL;
     }
 
     @Override
-    public Void visitReturnStmt(Stmt.Return stmt) {
+    public Completion visitReturnStmt(Stmt.Return stmt) {
+        if (stmt.value instanceof Expr.Call && tailCalls.contains(stmt.value)) {
+            Expr.Call call = (Expr.Call) stmt.value;
+            Object callee = evaluate(call.callee);
+            Object[] arguments = arguments(call, callee);
+
+            // 尾调用交给当前LoxFunction.call的循环执行，不再增加Java栈的深度
+            if (callee instanceof LoxFunction) {
+                tailCallee = (LoxFunction) callee;
+                tailArguments = arguments;
+                return Completion.RETURN;
+            }
+            returnValue = invoke(call, (LoxCallable) callee, null, arguments);
+            return Completion.RETURN;
+        }
+
         Object value = null;
         if (stmt.value != null) {
             value = evaluate(stmt.value);
         }
 
-        throw new Return(value);
+        returnValue = value;
+        return Completion.RETURN;
     }
 
     @Override
-    public Void visitVarStmt(Stmt.Var stmt) {
+    public Completion visitVarStmt(Stmt.Var stmt) {
         Object value = null;
         if (stmt.initializer != null) {
             value = evaluate(stmt.initializer);
         }
 
         environment.define(stmt.name.lexeme, value);
-        return null;
+        return Completion.NORMAL;
     }
 
     @Override
-    public Void visitWhileStmt(Stmt.While stmt) {
-        while (isTruthy(evaluate(stmt.condition)) && !isBreak) {
-            execute(stmt.body);
+    public Completion visitWhileStmt(Stmt.While stmt) {
+        TierManager.HotCode hot = tiers.loop(stmt);
+        Stmt.While loop = promoted(hot, stmt);
+
+        while (isTruthy(evaluate(loop.condition))) {
+            Completion completion = execute(loop.body);
+            if (completion == Completion.BREAK) {
+                break;
+            }
+            if (completion == Completion.RETURN) {
+                return completion;
+            }
+
+            // for循环的增量，continue之后同样要执行
+            if (loop.increment != null) {
+                evaluate(loop.increment);
+            }
+
+            // 循环回边，晋升后从下一次迭代开始执行优化后的循环
+            if (loop == stmt) {
+                loop = promoted(hot, stmt);
+            }
         }
-        isBreak = false;
-        return null;
+        return Completion.NORMAL;
+    }
+
+    private Stmt.While promoted(TierManager.HotCode hot, Stmt.While stmt) {
+        if (hot == null) {
+            return stmt;
+        }
+
+        Object promoted = hot.tick();
+        return promoted == null ? stmt : (Stmt.While) promoted;
     }
 
     /**************************************************************************/
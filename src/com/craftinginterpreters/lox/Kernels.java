@@ -0,0 +1,95 @@
+package com.craftinginterpreters.lox;
+
+import java.util.Arrays;
+
+/**
+ * @author Javen-Liu
+ * @version 1.0
+ * @date 2026/10/19 21:50
+ * @github https://github.com/Javen-Liu
+ * 数字数组上的批量运算，直接处理LoxArray中不装箱的double[]。
+ * 循环都写成计数循环、没有分支和装箱，C2可以将其编译为SIMD指令；
+ * 求和与点积使用四个独立的累加器，打破相邻迭代间的依赖，
+ * 因此结果与按顺序逐个相加可能在最后几位上不同
+ */
+final class Kernels {
+    private Kernels() {
+    }
+
+    static double[] add(double[] a, double[] b, int size) {
+        double[] result = new double[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = a[i] + b[i];
+        }
+        return result;
+    }
+
+    static double[] multiply(double[] a, double[] b, int size) {
+        double[] result = new double[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = a[i] * b[i];
+        }
+        return result;
+    }
+
+    static double[] scale(double[] a, double factor, int size) {
+        double[] result = new double[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = a[i] * factor;
+        }
+        return result;
+    }
+
+    static void fill(double[] a, double value, int size) {
+        Arrays.fill(a, 0, size, value);
+    }
+
+    static double dot(double[] a, double[] b, int size) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i + 3 < size; i += 4) {
+            s0 += a[i] * b[i];
+            s1 += a[i + 1] * b[i + 1];
+            s2 += a[i + 2] * b[i + 2];
+            s3 += a[i + 3] * b[i + 3];
+        }
+        for (; i < size; i++) {
+            s0 += a[i] * b[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    static double sum(double[] a, int size) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i + 3 < size; i += 4) {
+            s0 += a[i];
+            s1 += a[i + 1];
+            s2 += a[i + 2];
+            s3 += a[i + 3];
+        }
+        for (; i < size; i++) {
+            s0 += a[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * 与Math.min相同，任一元素为NaN时结果为NaN
+     */
+    static double min(double[] a, int size) {
+        double min = a[0];
+        for (int i = 1; i < size; i++) {
+            min = Math.min(min, a[i]);
+        }
+        return min;
+    }
+
+    static double max(double[] a, int size) {
+        double max = a[0];
+        for (int i = 1; i < size; i++) {
+            max = Math.max(max, a[i]);
+        }
+        return max;
+    }
+}
@@ -0,0 +1,95 @@
+package com.craftinginterpreters.lox;
+
+/**
+ * @author Javen-Liu
+ * @version 1.0
+ * @date 2026/10/19 19:45
+ * @github https://github.com/Javen-Liu
+ * 尚未生成String的Lox字符串（拼接产生的StringRope、slice产生的StringSlice）。
+ * 在Lox中与内容相同的String没有区别：比较时按内容比较，打印时直接写出字符，
+ * 只有必须得到String时才调用toString生成并缓存
+ */
+abstract class LazyString implements CharSequence {
+    private String flat;
+
+    /**
+     * 生成String，只在第一次调用时复制字符
+     */
+    abstract String flatten();
+
+    /**
+     * 将文本追加到builder中，不生成String
+     */
+    abstract void appendTo(StringBuilder builder);
+
+    /**
+     * 已经生成过的String，尚未生成时为null
+     */
+    final String flat() {
+        return flat;
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+
+    @Override
+    public final String toString() {
+        if (flat == null) {
+            flat = flatten();
+        }
+        return flat;
+    }
+
+    @Override
+    public final boolean equals(Object o) {
+        return this == o || contentEquals(this, o);
+    }
+
+    @Override
+    public final int hashCode() {
+        return toString().hashCode();
+    }
+
+    /**
+     * 是否是Lox字符串（String或LazyString）
+     */
+    static boolean isString(Object value) {
+        return value instanceof String || value instanceof LazyString;
+    }
+
+    /**
+     * 将可能是LazyString的值转换为String，其他值原样返回
+     */
+    static Object flatten(Object value) {
+        return value instanceof LazyString ? value.toString() : value;
+    }
+
+    /**
+     * 按内容比较两个Lox字符串，不生成String；任意一方不是字符串时返回false
+     */
+    static boolean contentEquals(Object l, Object r) {
+        if (!isString(l) || !isString(r)) {
+            return false;
+        }
+
+        CharSequence left = (CharSequence) l;
+        CharSequence right = (CharSequence) r;
+        if (left.length() != right.length()) {
+            return false;
+        }
+        if (left instanceof String) {
+            return ((String) left).contentEquals(right);
+        }
+        if (right instanceof String) {
+            return ((String) right).contentEquals(left);
+        }
+        for (int i = 0; i < left.length(); i++) {
+            if (left.charAt(i) != right.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
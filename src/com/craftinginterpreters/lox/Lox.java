@@ -22,6 +22,21 @@ public class Lox {
     private static final Interpreter INTERPRETER = new Interpreter();
     private static boolean debug = false;
 
+    /**
+     * 剖析文件路径，通过 -Dlox.profile=path 开启剖析模式
+     */
+    private static final String PROFILE_PATH = System.getProperty("lox.profile");
+
+    /**
+     * 是否在执行结束时输出字符串表的统计信息，通过 -Dlox.intern.stats=true 开启
+     */
+    private static final boolean INTERN_STATS = Boolean.getBoolean("lox.intern.stats");
+
+    /**
+     * 是否在执行结束时输出缓存的统计信息，通过 -Dlox.cache.stats=true 开启
+     */
+    private static final boolean CACHE_STATS = Boolean.getBoolean("lox.cache.stats");
+
     /**
      * 启动lox语言
      * @param args 命令行参数
@@ -61,7 +76,23 @@ public class Lox {
         }
 
         byte[] bytes = Files.readAllBytes(Paths.get(path));
-        run(new String(bytes, Charset.defaultCharset()));
+        String source = new String(bytes, Charset.defaultCharset());
+
+        if (PROFILE_PATH != null) {
+            INTERPRETER.useProfile(Profile.load(Paths.get(PROFILE_PATH), source));
+        }
+
+        run(source);
+
+        if (INTERPRETER.profile != null) {
+            INTERPRETER.profile.save();
+        }
+        if (INTERN_STATS) {
+            StringTable.report();
+        }
+        if (CACHE_STATS) {
+            LoxCache.report();
+        }
     }
 
     /**
@@ -71,6 +102,7 @@ public class Lox {
     private static void runPrompt() throws IOException{
         InputStreamReader input = new InputStreamReader(System.in);
         BufferedReader reader = new BufferedReader(input);
+        INTERPRETER.output.interactive();
 
         while(true){
             System.out.print("> ");
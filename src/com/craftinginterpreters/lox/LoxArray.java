@@ -0,0 +1,226 @@
+package com.craftinginterpreters.lox;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * @author Javen-Liu
+ * @version 1.0
+ * @date 2026/10/19 20:05
+ * @github https://github.com/Javen-Liu
+ * Lox中的数组，可以按需增长。
+ * 只存放数字时元素保存在不装箱的double[]中，
+ * 第一次存入其他类型的值时整体转换为Object[]，之后不再转换回来
+ */
+final class LoxArray {
+    private static final int MIN_CAPACITY = 4;
+
+    /**
+     * 两者恰好有一个不为null
+     */
+    private double[] numbers;
+    private Object[] values;
+    private int size = 0;
+
+    LoxArray(int capacity) {
+        numbers = new double[Math.max(capacity, MIN_CAPACITY)];
+    }
+
+    /**
+     * 创建长度为size、元素全部为fill的数组
+     */
+    static LoxArray filled(int size, Object fill) {
+        LoxArray array = new LoxArray(size);
+        if (fill instanceof Double) {
+            Arrays.fill(array.numbers, 0, size, (double) fill);
+        } else if (size == 0) {
+            return array;
+        } else {
+            array.generalize();
+            Arrays.fill(array.values, 0, size, fill);
+        }
+        array.size = size;
+        return array;
+    }
+
+    /**
+     * 以numbers作为存储创建数字数组，不复制
+     */
+    static LoxArray wrap(double[] numbers) {
+        LoxArray array = new LoxArray(0);
+        array.numbers = numbers;
+        array.size = numbers.length;
+        return array;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 是否只存放数字，此时可以通过getNumber和numbers直接访问double
+     */
+    boolean isNumeric() {
+        return numbers != null;
+    }
+
+    /**
+     * 元素的存储数组，只有前size个元素有效，isNumeric为false时返回null
+     */
+    double[] numbers() {
+        return numbers;
+    }
+
+    Object get(int index) {
+        if (numbers != null) {
+            return Numbers.box(numbers[index]);
+        }
+        return values[index];
+    }
+
+    /**
+     * isNumeric为true时读取元素，不装箱
+     */
+    double getNumber(int index) {
+        return numbers[index];
+    }
+
+    void set(int index, Object value) {
+        if (numbers != null) {
+            if (value instanceof Double) {
+                numbers[index] = (double) value;
+                return;
+            }
+            generalize();
+        }
+        values[index] = value;
+    }
+
+    void add(Object value) {
+        if (size == capacity()) {
+            grow();
+        }
+        size++;
+        set(size - 1, value);
+    }
+
+    /**
+     * 将所有元素设为value，数字数组填入数字时不装箱
+     */
+    void fill(Object value) {
+        if (numbers != null) {
+            if (value instanceof Double) {
+                Kernels.fill(numbers, (double) value, size);
+                return;
+            }
+            generalize();
+        }
+        Arrays.fill(values, 0, size, value);
+    }
+
+    Object removeLast() {
+        Object value = get(size - 1);
+        if (values != null) {
+            values[size - 1] = null;
+        }
+        size--;
+        return value;
+    }
+
+    /**
+     * 按数字大小原地排序，isNumeric为true时使用
+     */
+    void sortNumbers(boolean parallel) {
+        if (parallel) {
+            Arrays.parallelSort(numbers, 0, size);
+        } else {
+            Arrays.sort(numbers, 0, size);
+        }
+    }
+
+    /**
+     * 按comparator原地排序，数字数组先装箱排序再写回
+     */
+    void sort(Comparator<Object> comparator, boolean parallel) {
+        Object[] elements = values;
+        if (numbers != null) {
+            elements = new Object[size];
+            for (int i = 0; i < size; i++) {
+                elements[i] = Numbers.box(numbers[i]);
+            }
+        }
+
+        if (parallel) {
+            Arrays.parallelSort(elements, 0, size, comparator);
+        } else {
+            Arrays.sort(elements, 0, size, comparator);
+        }
+
+        if (numbers != null) {
+            for (int i = 0; i < size; i++) {
+                numbers[i] = (double) elements[i];
+            }
+        }
+    }
+
+    private int capacity() {
+        return numbers != null ? numbers.length : values.length;
+    }
+
+    private void grow() {
+        int capacity = Math.max(capacity() * 2, MIN_CAPACITY);
+        if (numbers != null) {
+            numbers = Arrays.copyOf(numbers, capacity);
+        } else {
+            values = Arrays.copyOf(values, capacity);
+        }
+    }
+
+    /**
+     * 元素又全部是数字时转换回double[]存储
+     * @return 转换后isNumeric是否为true
+     */
+    boolean narrow() {
+        if (numbers != null) {
+            return true;
+        }
+        for (int i = 0; i < size; i++) {
+            if (!(values[i] instanceof Double)) {
+                return false;
+            }
+        }
+        numbers = new double[values.length];
+        for (int i = 0; i < size; i++) {
+            numbers[i] = (double) values[i];
+        }
+        values = null;
+        return true;
+    }
+
+    /**
+     * 转换为Object[]存储
+     */
+    private void generalize() {
+        values = new Object[numbers.length];
+        for (int i = 0; i < size; i++) {
+            values[i] = Numbers.box(numbers[i]);
+        }
+        numbers = null;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            if (numbers != null) {
+                Numbers.append(builder, numbers[i]);
+            } else {
+                builder.append(Interpreter.stringify(values[i]));
+            }
+        }
+        return builder.append(']').toString();
+    }
+}
@@ -0,0 +1,172 @@
+package com.craftinginterpreters.lox;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author Javen-Liu
+ * @version 1.0
+ * @date 2026/10/19 22:30
+ * @github https://github.com/Javen-Liu
+ * 容量有限的LRU缓存，用于记忆化Lox中开销较大的计算。
+ * 每个元素有一个权重（默认为1），总权重超过容量时从最久未使用的元素开始淘汰。
+ * 键的相等性与LoxMap相同。
+ * 每个缓存分别记录命中、未命中和淘汰次数，通过 -Dlox.cache.stats=true 在执行结束时输出所有缓存的合计
+ */
+final class LoxCache {
+    private static long totalHits = 0;
+    private static long totalMisses = 0;
+    private static long totalEvictions = 0;
+    private static int created = 0;
+
+    private static final class Entry {
+        final Object value;
+        final double weight;
+
+        Entry(Object value, double weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * 按访问顺序排列，最久未使用的元素在最前面
+     */
+    private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final double capacity;
+    private double weight = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    LoxCache(double capacity) {
+        this.capacity = capacity;
+        created++;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * 读取并记录命中或未命中，不存在时为null
+     */
+    Object get(Object key) {
+        Entry entry = entries.get(checkKey(key));
+        record(entry != null);
+        return entry == null ? null : entry.value;
+    }
+
+    /**
+     * 只判断键是否存在，不计入统计，也不改变淘汰顺序
+     */
+    boolean containsKey(Object key) {
+        return entries.containsKey(checkKey(key));
+    }
+
+    void put(Object key, Object value, double weight) {
+        key = checkKey(key);
+        if (weight > capacity) {
+            // 放入后也会立即被淘汰，不必为它淘汰其他元素
+            remove(key);
+            evictions++;
+            totalEvictions++;
+            return;
+        }
+        Entry previous = entries.put(key, new Entry(value, weight));
+        if (previous != null) {
+            this.weight -= previous.weight;
+        }
+        this.weight += weight;
+        evict();
+    }
+
+    /**
+     * @return 被删除的值，键不存在时为null
+     */
+    Object remove(Object key) {
+        Entry entry = entries.remove(checkKey(key));
+        if (entry == null) {
+            return null;
+        }
+        weight -= entry.weight;
+        return entry.value;
+    }
+
+    /**
+     * 命中时返回缓存的值，否则调用compute(key)计算并放入缓存。
+     * compute中可以再次访问这个缓存，例如递归的记忆化
+     */
+    Object getOrCompute(Interpreter interpreter, Object key, LoxCallable compute) {
+        key = checkKey(key);
+        Entry entry = entries.get(key);
+        record(entry != null);
+        if (entry != null) {
+            return entry.value;
+        }
+        Object value = compute.call(interpreter, new Object[]{key});
+        put(key, value, 1);
+        return value;
+    }
+
+    /**
+     * @return 统计信息：hits, misses, evictions, size, weight
+     */
+    LoxMap stats() {
+        LoxMap stats = new LoxMap();
+        stats.put("hits", (double) hits);
+        stats.put("misses", (double) misses);
+        stats.put("evictions", (double) evictions);
+        stats.put("size", (double) entries.size());
+        stats.put("weight", weight);
+        return stats;
+    }
+
+    /**************************************************************************/
+
+    private static Object checkKey(Object key) {
+        if (key == null) {
+            throw new NativeError("Cache key cannot be nil.");
+        }
+        return LazyString.flatten(key);
+    }
+
+    private void record(boolean hit) {
+        if (hit) {
+            hits++;
+            totalHits++;
+        } else {
+            misses++;
+            totalMisses++;
+        }
+    }
+
+    /**
+     * 淘汰最久未使用的元素直到总权重不超过容量
+     */
+    private void evict() {
+        Iterator<Map.Entry<Object, Entry>> iterator = entries.entrySet().iterator();
+        while (weight > capacity && iterator.hasNext()) {
+            weight -= iterator.next().getValue().weight;
+            iterator.remove();
+            evictions++;
+            totalEvictions++;
+        }
+    }
+
+    /**
+     * 输出所有缓存的合计统计信息到标准错误
+     */
+    static void report() {
+        long lookups = totalHits + totalMisses;
+        double rate = lookups == 0 ? 0 : totalHits * 100.0 / lookups;
+        System.err.println("[cache] caches " + created + ", lookups " + lookups + ", hits " + totalHits +
+                " (" + String.format("%.1f", rate) + "%), evictions " + totalEvictions);
+    }
+
+    @Override
+    public String toString() {
+        return "<cache " + entries.size() + "/" + Numbers.format(capacity) + ">";
+    }
+}
@@ -1,5 +1,6 @@
 package com.craftinginterpreters.lox;
 
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -22,4 +23,15 @@ public interface LoxCallable {
      * @return 执行结果
      */
     Object call(Interpreter interpreter, List<Object> arguments);
+
+    /**
+     * 以数组传参的调用入口，解释器的调用点使用此方法以避免创建参数列表，
+     * 默认包装为列表后调用 call(interpreter, arguments)，LoxFunction和内置函数可以直接实现
+     * @param interpreter 解释器类实例对象
+     * @param arguments   参数数组，长度已经与arity相同
+     * @return 执行结果
+     */
+    default Object call(Interpreter interpreter, Object[] arguments) {
+        return call(interpreter, Arrays.asList(arguments));
+    }
 }
@@ -1,5 +1,6 @@
 package com.craftinginterpreters.lox;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -14,12 +15,31 @@ public class LoxClass implements LoxCallable{
     final LoxClass superclass;
     private final Map<String, LoxFunction> methods;
     private final Map<String, LoxFunction> staticMethods;
+    final Shape rootShape = new Shape(this);
+
+    /**
+     * 已创建实例的最大字段数，新实例按此预先分配槽位，避免构造时反复扩容
+     */
+    int slotsHint = 0;
+
+    /**
+     * 构造方法，定义类时就查找好，为null表示没有init方法
+     */
+    private final LoxFunction initializer;
 
     LoxClass(String name, LoxClass superclass, Map<String, LoxFunction> methods, Map<String, LoxFunction> staticMethods) {
         this.name = name;
         this.superclass = superclass;
-        this.methods = methods;
         this.staticMethods = staticMethods;
+
+        // 展平的方法表：先复制父类（已展平）的方法，再用本类的方法覆盖，查找时只需一次
+        if (superclass == null) {
+            this.methods = methods;
+        } else {
+            this.methods = new HashMap<>(superclass.methods);
+            this.methods.putAll(methods);
+        }
+        this.initializer = this.methods.get("init");
     }
 
     @Override
@@ -29,7 +49,6 @@ public class LoxClass implements LoxCallable{
 
     @Override
     public int arity() {
-        LoxFunction initializer = findMethod("init");
         if (initializer == null) {
             return 0;
         }
@@ -38,32 +57,24 @@ public class LoxClass implements LoxCallable{
 
     @Override
     public Object call(Interpreter interpreter, List<Object> arguments) {
+        return call(interpreter, arguments.toArray());
+    }
+
+    @Override
+    public Object call(Interpreter interpreter, Object[] arguments) {
         LoxInstance instance = new LoxInstance(this);
-        LoxFunction initializer = findMethod("init");
         if (initializer != null) {
-            initializer.bind(instance).call(interpreter, arguments);
+            initializer.call(interpreter, instance, arguments);
         }
 
         return instance;
     }
 
     LoxFunction findMethod(String name) {
-        if (methods.containsKey(name)) {
-            return methods.get(name);
-        }
-
-        if (superclass != null) {
-            return superclass.findMethod(name);
-        }
-
-        return null;
+        return methods.get(name);
     }
 
     LoxFunction findStaticMethod(String name) {
-        if (staticMethods.containsKey(name)) {
-            return staticMethods.get(name);
-        }
-
-        return null;
+        return staticMethods.get(name);
     }
 }
@@ -13,10 +13,21 @@ public class LoxFunction implements LoxCallable{
     private final Environment closure;
     private final boolean isInitializer;
 
+    /**
+     * 方法绑定的实例，调用时作为 this 定义在调用环境中，普通函数为null
+     */
+    private final LoxInstance receiver;
+
     LoxFunction(Stmt.Function declaration, Environment closure, boolean isInitializer) {
+        this(declaration, closure, isInitializer, null);
+    }
+
+    private LoxFunction(Stmt.Function declaration, Environment closure,
+                        boolean isInitializer, LoxInstance receiver) {
         this.declaration = declaration;
         this.closure = closure;
         this.isInitializer = isInitializer;
+        this.receiver = receiver;
     }
 
     @Override
@@ -26,22 +37,58 @@ public class LoxFunction implements LoxCallable{
 
     @Override
     public Object call(Interpreter interpreter, List<Object> arguments) {
+        return call(interpreter, receiver, arguments.toArray());
+    }
+
+    @Override
+    public Object call(Interpreter interpreter, Object[] arguments) {
+        return call(interpreter, receiver, arguments);
+    }
+
+    /**
+     * 以指定的实例作为 this 调用方法，不需要先创建绑定后的LoxFunction
+     * @param interpreter 解释器类实例对象
+     * @param receiver    this 指向的实例，普通函数为null
+     * @param arguments   参数数组
+     * @return 执行结果
+     */
+    Object call(Interpreter interpreter, LoxInstance receiver, Object[] arguments) {
+        LoxFunction function = this;
+
+        // 蹦床：尾调用暂存在解释器中回到这里，复用当前的Java栈帧继续调用
+        while (true) {
+            Object value = function.invoke(interpreter, receiver, arguments);
+            LoxFunction next = interpreter.takeTailCallee();
+            if (next == null) {
+                return value;
+            }
+            function = next;
+            receiver = function.receiver;
+            arguments = interpreter.takeTailArguments();
+        }
+    }
+
+    private Object invoke(Interpreter interpreter, LoxInstance receiver, Object[] arguments) {
+        if (interpreter.recorder != null) {
+            interpreter.recorder.enter(declaration);
+        }
+
         Environment environment = new Environment(closure);
+        if (receiver != null) {
+            environment.define("this", receiver);
+        }
 
         for (int i = 0; i < declaration.params.size(); i++) {
-            environment.define(declaration.params.get(i).lexeme, arguments.get(i));
+            environment.define(declaration.params.get(i).lexeme, arguments[i]);
         }
 
-        try {
-            interpreter.executeBlock(declaration.body, environment);
-        } catch (Return returnValue) {
-            return returnValue.value;
-        }
+        Completion completion = interpreter.executeBlock(
+                interpreter.tiers.body(declaration), environment);
 
         if (isInitializer) {
-            return closure.getAt(0, "this");
+            return receiver;
         }
-        return null;
+        return completion == Completion.RETURN ? interpreter.takeReturnValue() : null;
     }
 
     @Override
@@ -49,9 +96,18 @@ public class LoxFunction implements LoxCallable{
         return "<fn " + declaration + ">";
     }
 
+    boolean isDeclaredBy(Stmt.Function function) {
+        return declaration == function;
+    }
+
+    String name() {
+        return declaration.name.lexeme;
+    }
+
+    /**
+     * 方法作为值被取出时才需要绑定，直接调用方法时使用 call(interpreter, receiver, arguments)
+     */
     LoxFunction bind(LoxInstance instance) {
-        Environment environment = new Environment(closure);
-        environment.define("this", instance);
-        return new LoxFunction(declaration, environment, isInitializer);
+        return new LoxFunction(declaration, closure, isInitializer, instance);
     }
 }
@@ -1,7 +1,6 @@
 package com.craftinginterpreters.lox;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 /**
  * @author Javen-Liu
@@ -10,11 +9,18 @@ import java.util.Map;
  * @github https://github.com/Javen-Liu
  */
 public class LoxInstance {
-    private LoxClass klass;
-    private final Map<String, Object> fields = new HashMap<>();
+    final LoxClass klass;
+
+    /**
+     * 字段的布局由共享的形状描述，字段值按槽位存放在数组中
+     */
+    private Shape shape;
+    private Object[] slots;
 
     LoxInstance(LoxClass klass) {
         this.klass = klass;
+        this.shape = klass.rootShape;
+        this.slots = new Object[klass.slotsHint];
     }
 
     @Override
@@ -23,8 +29,9 @@ public class LoxInstance {
     }
 
     Object get(Token name) {
-        if (fields.containsKey(name.lexeme)) {
-            return fields.get(name.lexeme);
+        int index = shape.indexOf(name.lexeme);
+        if (index >= 0) {
+            return slots[index];
         }
 
         LoxFunction method = klass.findMethod(name.lexeme);
@@ -41,6 +48,41 @@ public class LoxInstance {
     }
 
     void set(Token name, Object value) {
-        fields.put(name.lexeme, value);
+        int index = shape.indexOf(name.lexeme);
+        if (index < 0) {
+            addSlot(shape.with(name.lexeme), value);
+            return;
+        }
+
+        slots[index] = value;
+    }
+
+    /**
+     * 以下方法供PropertyCache在命中缓存时直接读写槽位
+     */
+
+    Shape shape() {
+        return shape;
+    }
+
+    Object slot(int index) {
+        return slots[index];
+    }
+
+    void setSlot(int index, Object value) {
+        slots[index] = value;
+    }
+
+    /**
+     * 转换到多了一个字段的形状，新字段的值存放在最后一个槽位
+     */
+    void addSlot(Shape next, Object value) {
+        shape = next;
+        int index = next.size() - 1;
+        if (index >= slots.length) {
+            slots = Arrays.copyOf(slots, next.size());
+            klass.slotsHint = Math.max(klass.slotsHint, slots.length);
+        }
+        slots[index] = value;
     }
 }
@@ -0,0 +1,242 @@
+package com.craftinginterpreters.lox;
+
+/**
+ * @author Javen-Liu
+ * @version 1.0
+ * @date 2026/10/19 20:40
+ * @github https://github.com/Javen-Liu
+ * Lox中的哈希表：开放寻址、线性探测，删除时向前移动后续元素而不留下墓碑。
+ * 键和值直接存放在三个平铺的数组中，没有每个元素一个的Entry对象：
+ * 数字键不装箱，以double的位表示存放在bits中，keys中对应位置为NUMBER标记；
+ * 其他键的hashCode也存放在bits中，探测时先比较哈希值再调用equals。
+ * 键的相等性与Lox的 == 相同，字符串按内容，实例按引用
+ */
+final class LoxMap {
+    /**
+     * keys中表示该位置是数字键的标记
+     */
+    private static final Object NUMBER = new Object();
+    private static final int MIN_CAPACITY = 8;
+
+    private Object[] keys;
+    private long[] bits;
+    private Object[] values;
+    private int size = 0;
+
+    LoxMap() {
+        allocate(MIN_CAPACITY);
+    }
+
+    int size() {
+        return size;
+    }
+
+    Object get(Object key) {
+        int slot = find(key);
+        return slot < 0 ? null : values[slot];
+    }
+
+    boolean containsKey(Object key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * @return 键原来对应的值，不存在时为null
+     */
+    Object put(Object key, Object value) {
+        key = LazyString.flatten(key);
+        int slot = find(key);
+        if (slot >= 0) {
+            Object previous = values[slot];
+            values[slot] = value;
+            return previous;
+        }
+
+        slot = -slot - 1;
+        if (key instanceof Double) {
+            keys[slot] = NUMBER;
+            bits[slot] = Double.doubleToLongBits((double) key);
+        } else {
+            keys[slot] = key;
+            bits[slot] = key.hashCode();
+        }
+        values[slot] = value;
+
+        // 负载因子为0.75
+        if (++size * 4 >= keys.length * 3) {
+            resize(keys.length * 2);
+        }
+        return null;
+    }
+
+    /**
+     * @return 被删除的值，键不存在时为null
+     */
+    Object remove(Object key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+        Object previous = values[slot];
+
+        // 将探测链上后面的元素前移填补空位，使查找时遇到空位即可停止
+        int mask = keys.length - 1;
+        int hole = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            if (keys[next] == null) {
+                break;
+            }
+            int home = home(next, mask);
+            boolean movable = hole <= next ?
+                    home <= hole || home > next :
+                    home <= hole && home > next;
+            if (movable) {
+                keys[hole] = keys[next];
+                bits[hole] = bits[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        keys[hole] = null;
+        bits[hole] = 0;
+        values[hole] = null;
+        size--;
+        return previous;
+    }
+
+    /**
+     * 依次取出键，顺序由哈希表内部的位置决定
+     */
+    LoxArray keys() {
+        LoxArray array = new LoxArray(size);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                array.add(key(i));
+            }
+        }
+        return array;
+    }
+
+    LoxArray values() {
+        LoxArray array = new LoxArray(size);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                array.add(values[i]);
+            }
+        }
+        return array;
+    }
+
+    /**************************************************************************/
+
+    /**
+     * 查找键所在的位置
+     * @return 找到时返回位置，否则返回 -(可插入的位置) - 1
+     */
+    private int find(Object key) {
+        if (key instanceof Double) {
+            return findNumber(Double.doubleToLongBits((double) key));
+        }
+        if (key == null) {
+            throw new NativeError("Map key cannot be nil.");
+        }
+
+        key = LazyString.flatten(key);
+        long hash = key.hashCode();
+        int mask = keys.length - 1;
+        int slot = spread(hash) & mask;
+        while (true) {
+            Object candidate = keys[slot];
+            if (candidate == null) {
+                return -slot - 1;
+            }
+            if (candidate != NUMBER && bits[slot] == hash && candidate.equals(key)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * 数字键的专用路径，只比较位表示，不需要装箱和equals
+     */
+    private int findNumber(long number) {
+        int mask = keys.length - 1;
+        int slot = spread(number) & mask;
+        while (true) {
+            Object candidate = keys[slot];
+            if (candidate == null) {
+                return -slot - 1;
+            }
+            if (candidate == NUMBER && bits[slot] == number) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private Object key(int slot) {
+        return keys[slot] == NUMBER ? Numbers.box(Double.longBitsToDouble(bits[slot])) : keys[slot];
+    }
+
+    private int home(int slot, int mask) {
+        return spread(bits[slot]) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new Object[capacity];
+        bits = new long[capacity];
+        values = new Object[capacity];
+    }
+
+    private void resize(int capacity) {
+        Object[] oldKeys = keys;
+        long[] oldBits = bits;
+        Object[] oldValues = values;
+        allocate(capacity);
+
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == null) {
+                continue;
+            }
+            int slot = spread(oldBits[i]) & mask;
+            while (keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[i];
+            bits[slot] = oldBits[i];
+            values[slot] = oldValues[i];
+        }
+    }
+
+    /**
+     * 打散哈希值的各个位，线性探测对聚集很敏感，连续的整数键也需要均匀分布
+     */
+    private static int spread(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return (int) hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        boolean first = true;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == null) {
+                continue;
+            }
+            if (!first) {
+                builder.append(", ");
+            }
+            first = false;
+            builder.append(Interpreter.stringify(key(i))).append(": ")
+                    .append(Interpreter.stringify(values[i]));
+        }
+        return builder.append('}').toString();
+    }
+}
@@ -0,0 +1,14 @@
+package com.craftinginterpreters.lox;
+
+/**
+ * @author Javen-Liu
+ * @version 1.0
+ * @date 2026/10/19 20:00
+ * @github https://github.com/Javen-Liu
+ * 内置函数中的错误，内置函数不知道调用位置，由Interpreter在调用处转换为RuntimeError
+ */
+class NativeError extends RuntimeException {
+    NativeError(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -0,0 +1,53 @@
+package com.craftinginterpreters.lox;
+
+import java.util.List;
+
+/**
+ * @author Javen-Liu
+ * @version 1.0
+ * @date 2026/10/19 20:00
+ * @github https://github.com/Javen-Liu
+ * 用Java实现的内置函数，函数体以数组接收参数，参数个数已经由调用处检查过。
+ * pure表示函数没有副作用、不修改参数，可以在多个线程中同时调用
+ */
+class NativeFunction implements LoxCallable {
+    interface Body {
+        Object call(Interpreter interpreter, Object[] arguments);
+    }
+
+    final String name;
+    private final int arity;
+    final boolean pure;
+    private final Body body;
+
+    NativeFunction(String name, int arity, Body body) {
+        this(name, arity, false, body);
+    }
+
+    NativeFunction(String name, int arity, boolean pure, Body body) {
+        this.name = name;
+        this.arity = arity;
+        this.pure = pure;
+        this.body = body;
+    }
+
+    @Override
+    public int arity() {
+        return arity;
+    }
+
+    @Override
+    public Object call(Interpreter interpreter, List<Object> arguments) {
+        return call(interpreter, arguments.toArray());
+    }
+
+    @Override
+    public Object call(Interpreter interpreter, Object[] arguments) {
+        return body.call(interpreter, arguments);
+    }
+
+    @Override
+    public String toString() {
+        return "<native fn>";
+    }
+}
@@ -0,0 +1,477 @@
+package com.craftinginterpreters.lox;
+
+/**
+ * @author Javen-Liu
+ * @version 1.0
+ * @date 2026/10/19 20:10
+ * @github https://github.com/Javen-Liu
+ * 定义在全局环境中的内置函数。
+ * 字符串函数：len, charAt, slice, indexOf, split；
+ * slice和split返回的子串是指向原字符串的视图（见StringSlice），不复制字符。
+ * 数组函数：array, push, pop，以及len；
+ * 哈希表函数：map, get, put, remove, has, keys, values，以及len；
+ * 不可变集合函数：vector, dict, conj, assoc, dissoc, transient, persistent，
+ * 读取时与数组、哈希表共用get, has, keys, values, len；
+ * transient得到的构建器用push, put, remove直接修改，persistent后冻结；
+ * 数字数组的批量运算：add, multiply, scale, fill, dot, sum, min, max（见Kernels）；
+ * 数组的高阶函数：sort, sortWith, collect, filter, reduce, forEach（见BulkOperations）；
+ * LRU缓存函数：cache, putWeighted, getOrCompute, cacheStats，读写与哈希表共用get, put, remove, has, len。
+ * 没有副作用的函数用definePure定义，可以被高阶函数并行调用
+ */
+final class Natives {
+    /**
+     * charAt返回的单个ASCII字符共享同一个String
+     */
+    private static final String[] ASCII = new String[128];
+
+    static {
+        for (int i = 0; i < ASCII.length; i++) {
+            ASCII[i] = StringTable.intern(String.valueOf((char) i));
+        }
+    }
+
+    private Natives() {
+    }
+
+    static void define(Environment globals) {
+        definePure(globals, "len", 1, (interpreter, args) -> {
+            if (args[0] instanceof LoxArray) {
+                return (double) ((LoxArray) args[0]).size();
+            }
+            if (args[0] instanceof LoxMap) {
+                return (double) ((LoxMap) args[0]).size();
+            }
+            if (args[0] instanceof PersistentVector) {
+                return (double) ((PersistentVector) args[0]).size();
+            }
+            if (args[0] instanceof PersistentMap) {
+                return (double) ((PersistentMap) args[0]).size();
+            }
+            if (args[0] instanceof PersistentVector.Transient) {
+                return (double) ((PersistentVector.Transient) args[0]).size();
+            }
+            if (args[0] instanceof PersistentMap.Transient) {
+                return (double) ((PersistentMap.Transient) args[0]).size();
+            }
+            if (args[0] instanceof LoxCache) {
+                return (double) ((LoxCache) args[0]).size();
+            }
+            if (!LazyString.isString(args[0])) {
+                throw new NativeError("len() expects a string or a collection.");
+            }
+            return (double) ((CharSequence) args[0]).length();
+        });
+
+        definePure(globals, "charAt", 2, (interpreter, args) -> {
+            CharSequence text = string(args[0], "charAt");
+            char c = text.charAt(index(args[1], text.length(), "charAt"));
+            return c < ASCII.length ? ASCII[c] : String.valueOf(c);
+        });
+
+        definePure(globals, "slice", 3, (interpreter, args) -> {
+            CharSequence text = string(args[0], "slice");
+            int end = bound(args[2], text.length(), "slice");
+            int start = bound(args[1], end, "slice");
+            return StringSlice.of(text, start, end);
+        });
+
+        definePure(globals, "indexOf", 2, (interpreter, args) ->
+                (double) indexOf(string(args[0], "indexOf"), string(args[1], "indexOf").toString(), 0));
+
+        definePure(globals, "split", 2, (interpreter, args) -> {
+            CharSequence text = string(args[0], "split");
+            String separator = string(args[1], "split").toString();
+            if (separator.isEmpty()) {
+                throw new NativeError("split() separator must not be empty.");
+            }
+
+            LoxArray fields = new LoxArray(8);
+            int start = 0;
+            int index;
+            while ((index = indexOf(text, separator, start)) >= 0) {
+                fields.add(StringSlice.of(text, start, index));
+                start = index + separator.length();
+            }
+            fields.add(StringSlice.of(text, start, text.length()));
+            return fields;
+        });
+
+        definePure(globals, "array", 2, (interpreter, args) -> {
+            int size = integer(args[0], "array");
+            if (size < 0) {
+                throw new NativeError("array() size must not be negative.");
+            }
+            return LoxArray.filled(size, args[1]);
+        });
+
+        define(globals, "push", 2, (interpreter, args) -> {
+            if (args[0] instanceof PersistentVector.Transient) {
+                ((PersistentVector.Transient) args[0]).add(args[1]);
+                return args[0];
+            }
+            array(args[0], "push").add(args[1]);
+            return args[0];
+        });
+
+        define(globals, "pop", 1, (interpreter, args) -> {
+            LoxArray array = array(args[0], "pop");
+            if (array.size() == 0) {
+                throw new NativeError("pop() from an empty array.");
+            }
+            return array.removeLast();
+        });
+
+        definePure(globals, "map", 0, (interpreter, args) -> new LoxMap());
+
+        // 读取缓存会改变淘汰顺序和统计信息，因此get不是pure
+        define(globals, "get", 2, (interpreter, args) -> {
+            Object collection = args[0];
+            if (collection instanceof LoxMap) {
+                return ((LoxMap) collection).get(args[1]);
+            }
+            if (collection instanceof LoxCache) {
+                return ((LoxCache) collection).get(args[1]);
+            }
+            if (collection instanceof PersistentMap) {
+                return ((PersistentMap) collection).get(args[1]);
+            }
+            if (collection instanceof PersistentMap.Transient) {
+                return ((PersistentMap.Transient) collection).get(args[1]);
+            }
+            if (collection instanceof PersistentVector) {
+                PersistentVector vector = (PersistentVector) collection;
+                return vector.get(index(args[1], vector.size(), "get"));
+            }
+            if (collection instanceof PersistentVector.Transient) {
+                PersistentVector.Transient vector = (PersistentVector.Transient) collection;
+                return vector.get(index(args[1], vector.size(), "get"));
+            }
+            throw new NativeError("get() expects a map, a vector or a cache.");
+        });
+
+        define(globals, "put", 3, (interpreter, args) -> {
+            if (args[0] instanceof PersistentMap.Transient) {
+                ((PersistentMap.Transient) args[0]).put(args[1], args[2]);
+                return args[0];
+            }
+            if (args[0] instanceof PersistentVector.Transient) {
+                // 下标等于长度时追加到末尾
+                PersistentVector.Transient vector = (PersistentVector.Transient) args[0];
+                int index = bound(args[1], vector.size(), "put");
+                if (index == vector.size()) {
+                    vector.add(args[2]);
+                } else {
+                    vector.set(index, args[2]);
+                }
+                return args[0];
+            }
+            if (args[0] instanceof LoxCache) {
+                ((LoxCache) args[0]).put(args[1], args[2], 1);
+                return args[0];
+            }
+            map(args[0], "put").put(args[1], args[2]);
+            return args[0];
+        });
+
+        define(globals, "remove", 2, (interpreter, args) -> {
+            if (args[0] instanceof PersistentMap.Transient) {
+                return ((PersistentMap.Transient) args[0]).remove(args[1]);
+            }
+            if (args[0] instanceof LoxCache) {
+                return ((LoxCache) args[0]).remove(args[1]);
+            }
+            return map(args[0], "remove").remove(args[1]);
+        });
+
+        definePure(globals, "has", 2, (interpreter, args) -> {
+            if (args[0] instanceof PersistentMap) {
+                return ((PersistentMap) args[0]).containsKey(args[1]);
+            }
+            if (args[0] instanceof PersistentMap.Transient) {
+                return ((PersistentMap.Transient) args[0]).containsKey(args[1]);
+            }
+            if (args[0] instanceof LoxCache) {
+                return ((LoxCache) args[0]).containsKey(args[1]);
+            }
+            return map(args[0], "has").containsKey(args[1]);
+        });
+
+        definePure(globals, "keys", 1, (interpreter, args) -> {
+            if (args[0] instanceof PersistentMap) {
+                return ((PersistentMap) args[0]).keys();
+            }
+            if (args[0] instanceof PersistentMap.Transient) {
+                return ((PersistentMap.Transient) args[0]).keys();
+            }
+            return map(args[0], "keys").keys();
+        });
+
+        definePure(globals, "values", 1, (interpreter, args) -> {
+            if (args[0] instanceof PersistentMap) {
+                return ((PersistentMap) args[0]).values();
+            }
+            if (args[0] instanceof PersistentMap.Transient) {
+                return ((PersistentMap.Transient) args[0]).values();
+            }
+            return map(args[0], "values").values();
+        });
+
+        definePure(globals, "vector", 0, (interpreter, args) -> PersistentVector.EMPTY);
+
+        definePure(globals, "dict", 0, (interpreter, args) -> PersistentMap.EMPTY);
+
+        definePure(globals, "conj", 2, (interpreter, args) -> vector(args[0], "conj").add(args[1]));
+
+        definePure(globals, "assoc", 3, (interpreter, args) -> {
+            if (args[0] instanceof PersistentMap) {
+                return ((PersistentMap) args[0]).put(args[1], args[2]);
+            }
+            if (!(args[0] instanceof PersistentVector)) {
+                throw new NativeError("assoc() expects a dict or a vector.");
+            }
+            // 下标等于长度时追加到末尾
+            PersistentVector vector = (PersistentVector) args[0];
+            int index = bound(args[1], vector.size(), "assoc");
+            return index == vector.size() ? vector.add(args[2]) : vector.set(index, args[2]);
+        });
+
+        definePure(globals, "dissoc", 2, (interpreter, args) -> dict(args[0], "dissoc").remove(args[1]));
+
+        define(globals, "transient", 1, (interpreter, args) -> {
+            if (args[0] instanceof PersistentVector) {
+                return ((PersistentVector) args[0]).asTransient();
+            }
+            return dict(args[0], "transient").asTransient();
+        });
+
+        define(globals, "persistent", 1, (interpreter, args) -> {
+            if (args[0] instanceof PersistentVector.Transient) {
+                return ((PersistentVector.Transient) args[0]).persistent();
+            }
+            if (args[0] instanceof PersistentMap.Transient) {
+                return ((PersistentMap.Transient) args[0]).persistent();
+            }
+            throw new NativeError("persistent() expects a transient.");
+        });
+
+        definePure(globals, "add", 2, (interpreter, args) -> {
+            LoxArray a = numeric(args[0], "add");
+            LoxArray b = sameSize(a, numeric(args[1], "add"), "add");
+            return LoxArray.wrap(Kernels.add(a.numbers(), b.numbers(), a.size()));
+        });
+
+        definePure(globals, "multiply", 2, (interpreter, args) -> {
+            LoxArray a = numeric(args[0], "multiply");
+            LoxArray b = sameSize(a, numeric(args[1], "multiply"), "multiply");
+            return LoxArray.wrap(Kernels.multiply(a.numbers(), b.numbers(), a.size()));
+        });
+
+        definePure(globals, "scale", 2, (interpreter, args) -> {
+            LoxArray a = numeric(args[0], "scale");
+            return LoxArray.wrap(Kernels.scale(a.numbers(), number(args[1], "scale"), a.size()));
+        });
+
+        define(globals, "fill", 2, (interpreter, args) -> {
+            LoxArray a = array(args[0], "fill");
+            a.fill(args[1]);
+            return a;
+        });
+
+        definePure(globals, "dot", 2, (interpreter, args) -> {
+            LoxArray a = numeric(args[0], "dot");
+            LoxArray b = sameSize(a, numeric(args[1], "dot"), "dot");
+            return Numbers.box(Kernels.dot(a.numbers(), b.numbers(), a.size()));
+        });
+
+        definePure(globals, "sum", 1, (interpreter, args) -> {
+            LoxArray a = numeric(args[0], "sum");
+            return Numbers.box(Kernels.sum(a.numbers(), a.size()));
+        });
+
+        definePure(globals, "min", 1, (interpreter, args) -> {
+            LoxArray a = nonEmpty(numeric(args[0], "min"), "min");
+            return Numbers.box(Kernels.min(a.numbers(), a.size()));
+        });
+
+        definePure(globals, "max", 1, (interpreter, args) -> {
+            LoxArray a = nonEmpty(numeric(args[0], "max"), "max");
+            return Numbers.box(Kernels.max(a.numbers(), a.size()));
+        });
+
+        define(globals, "sort", 1, (interpreter, args) -> BulkOperations.sort(array(args[0], "sort")));
+
+        define(globals, "sortWith", 2, (interpreter, args) -> BulkOperations.sortWith(interpreter,
+                array(args[0], "sortWith"), function(args[1], 2, "sortWith")));
+
+        define(globals, "collect", 2, (interpreter, args) -> BulkOperations.collect(interpreter,
+                array(args[0], "collect"), function(args[1], 1, "collect")));
+
+        define(globals, "filter", 2, (interpreter, args) -> BulkOperations.filter(interpreter,
+                array(args[0], "filter"), function(args[1], 1, "filter")));
+
+        define(globals, "reduce", 3, (interpreter, args) -> BulkOperations.reduce(interpreter,
+                array(args[0], "reduce"), function(args[1], 2, "reduce"), args[2]));
+
+        define(globals, "forEach", 2, (interpreter, args) -> {
+            BulkOperations.forEach(interpreter, array(args[0], "forEach"), function(args[1], 1, "forEach"));
+            return null;
+        });
+
+        define(globals, "cache", 1, (interpreter, args) -> {
+            double capacity = number(args[0], "cache");
+            if (!(capacity > 0)) {
+                throw new NativeError("cache() capacity must be positive.");
+            }
+            return new LoxCache(capacity);
+        });
+
+        define(globals, "putWeighted", 4, (interpreter, args) -> {
+            double weight = number(args[3], "putWeighted");
+            if (!(weight >= 0)) {
+                throw new NativeError("putWeighted() weight must not be negative.");
+            }
+            cache(args[0], "putWeighted").put(args[1], args[2], weight);
+            return args[0];
+        });
+
+        define(globals, "getOrCompute", 3, (interpreter, args) -> cache(args[0], "getOrCompute")
+                .getOrCompute(interpreter, args[1], function(args[2], 1, "getOrCompute")));
+
+        define(globals, "cacheStats", 1, (interpreter, args) -> cache(args[0], "cacheStats").stats());
+    }
+
+    private static void define(Environment globals, String name, int arity, NativeFunction.Body body) {
+        globals.define(name, new NativeFunction(name, arity, body));
+    }
+
+    private static void definePure(Environment globals, String name, int arity, NativeFunction.Body body) {
+        globals.define(name, new NativeFunction(name, arity, true, body));
+    }
+
+    /**************************************************************************/
+
+    /**
+     * 参数检查和转换
+     */
+
+    static CharSequence string(Object value, String function) {
+        if (!LazyString.isString(value)) {
+            throw new NativeError(function + "() expects a string.");
+        }
+        return (CharSequence) value;
+    }
+
+    static LoxArray array(Object value, String function) {
+        if (!(value instanceof LoxArray)) {
+            throw new NativeError(function + "() expects an array.");
+        }
+        return (LoxArray) value;
+    }
+
+    static LoxMap map(Object value, String function) {
+        if (!(value instanceof LoxMap)) {
+            throw new NativeError(function + "() expects a map.");
+        }
+        return (LoxMap) value;
+    }
+
+    /**
+     * 接受arity个参数的函数
+     */
+    static LoxCallable function(Object value, int arity, String function) {
+        if (!(value instanceof LoxCallable) || ((LoxCallable) value).arity() != arity) {
+            throw new NativeError(function + "() expects a function of " + arity +
+                    (arity == 1 ? " argument." : " arguments."));
+        }
+        return (LoxCallable) value;
+    }
+
+    /**
+     * 只存放数字的数组
+     */
+    static LoxArray numeric(Object value, String function) {
+        LoxArray array = array(value, function);
+        if (!array.isNumeric()) {
+            throw new NativeError(function + "() expects an array of numbers.");
+        }
+        return array;
+    }
+
+    private static LoxArray sameSize(LoxArray a, LoxArray b, String function) {
+        if (a.size() != b.size()) {
+            throw new NativeError(function + "() expects arrays of the same length.");
+        }
+        return b;
+    }
+
+    private static LoxArray nonEmpty(LoxArray array, String function) {
+        if (array.size() == 0) {
+            throw new NativeError(function + "() of an empty array.");
+        }
+        return array;
+    }
+
+    static double number(Object value, String function) {
+        if (!(value instanceof Double)) {
+            throw new NativeError(function + "() expects a number.");
+        }
+        return (double) value;
+    }
+
+    static LoxCache cache(Object value, String function) {
+        if (!(value instanceof LoxCache)) {
+            throw new NativeError(function + "() expects a cache.");
+        }
+        return (LoxCache) value;
+    }
+
+    static PersistentVector vector(Object value, String function) {
+        if (!(value instanceof PersistentVector)) {
+            throw new NativeError(function + "() expects a vector.");
+        }
+        return (PersistentVector) value;
+    }
+
+    static PersistentMap dict(Object value, String function) {
+        if (!(value instanceof PersistentMap)) {
+            throw new NativeError(function + "() expects a dict.");
+        }
+        return (PersistentMap) value;
+    }
+
+    static int integer(Object value, String function) {
+        if (!(value instanceof Double) || (double) value != Math.floor((double) value)) {
+            throw new NativeError(function + "() expects an integer.");
+        }
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, (double) value));
+    }
+
+    /**
+     * 元素下标，范围为 [0, length)
+     */
+    static int index(Object value, int length, String function) {
+        int index = integer(value, function);
+        if (index < 0 || index >= length) {
+            throw new NativeError(function + "() index " + index + " out of range.");
+        }
+        return index;
+    }
+
+    /**
+     * 区间端点，范围为 [0, limit]
+     */
+    private static int bound(Object value, int limit, String function) {
+        int bound = integer(value, function);
+        if (bound < 0 || bound > limit) {
+            throw new NativeError(function + "() index " + bound + " out of range.");
+        }
+        return bound;
+    }
+
+    private static int indexOf(CharSequence text, String needle, int from) {
+        if (text instanceof StringSlice) {
+            return ((StringSlice) text).indexOf(needle, from);
+        }
+        return text.toString().indexOf(needle, from);
+    }
+}
@@ -0,0 +1,154 @@
+package com.craftinginterpreters.lox;
+
+/**
+ * @author Javen-Liu
+ * @version 1.0
+ * @date 2026/10/19 15:20
+ * @github https://github.com/Javen-Liu
+ * Lox中的数字都是Double，这里为整数值提供快速路径：
+ * 小整数复用缓存的Double对象，整数值直接按long输出，不再经过 toString 和去掉 ".0"。
+ * 不超过15位有效数字的小数按最短表示直接写出，其余情况交给 Double.toString
+ */
+final class Numbers {
+    private static final int CACHE_LOW = -128;
+    private static final int CACHE_HIGH = Integer.getInteger("lox.number.cache", 1023);
+    private static final Double[] CACHE = new Double[CACHE_HIGH - CACHE_LOW + 1];
+
+    /**
+     * Double.toString 从 10^7 开始使用科学计数法，这个范围内的整数才能按long输出
+     */
+    private static final double PLAIN_LIMIT = 1e7;
+    private static final double PLAIN_MIN = 1e-3;
+
+    /**
+     * 不超过15位有效数字的十进制数与double一一对应，这样的最短表示是唯一的，
+     * 与 Double.toString 的结果必然相同
+     */
+    private static final int MAX_DIGITS = 15;
+    private static final double[] POW10 = new double[MAX_DIGITS + 3];
+    private static final long[] LONG_POW10 = new long[MAX_DIGITS + 3];
+
+    static {
+        for (int i = 0; i < CACHE.length; i++) {
+            CACHE[i] = (double) (i + CACHE_LOW);
+        }
+
+        long pow = 1;
+        for (int i = 0; i < POW10.length; i++) {
+            LONG_POW10[i] = pow;
+            POW10[i] = pow;
+            pow *= 10;
+        }
+    }
+
+    private Numbers() {
+    }
+
+    /**
+     * 装箱，缓存范围内的整数值返回共享的Double对象
+     * @param value 数值
+     * @return 装箱后的值
+     */
+    static Double box(double value) {
+        int integer = (int) value;
+        if (integer == value && integer >= CACHE_LOW && integer <= CACHE_HIGH
+                && !isNegativeZero(value)) {
+            return CACHE[integer - CACHE_LOW];
+        }
+        return value;
+    }
+
+    /**
+     * 将数值转换为Lox中的文本表示，与 Double.toString 后去掉末尾 ".0" 的结果相同
+     * @param value 数值
+     * @return 文本
+     */
+    static String format(double value) {
+        long integer = (long) value;
+        if (integer == value && Math.abs(value) < PLAIN_LIMIT && !isNegativeZero(value)) {
+            return Long.toString(integer);
+        }
+
+        StringBuilder builder = new StringBuilder(24);
+        if (appendDecimal(builder, value)) {
+            return builder.toString();
+        }
+        return trim(Double.toString(value));
+    }
+
+    /**
+     * 将数值的文本表示直接追加到builder中，结果与format相同
+     * @param builder 输出位置
+     * @param value 数值
+     */
+    static void append(StringBuilder builder, double value) {
+        long integer = (long) value;
+        if (integer == value && Math.abs(value) < PLAIN_LIMIT && !isNegativeZero(value)) {
+            builder.append(integer);
+            return;
+        }
+
+        if (!appendDecimal(builder, value)) {
+            builder.append(trim(Double.toString(value)));
+        }
+    }
+
+    /**
+     * 非整数的快速路径：Double.toString 不使用科学计数法的范围内，
+     * 依次尝试保留1位、2位...小数，第一个能精确还原为原值的就是最短表示
+     * @return 是否已经写出，不满足条件时返回false且不写出任何内容
+     */
+    private static boolean appendDecimal(StringBuilder builder, double value) {
+        double magnitude = Math.abs(value);
+        if (!(magnitude >= PLAIN_MIN && magnitude < PLAIN_LIMIT)) {
+            return false;
+        }
+
+        int maxScale;
+        if (magnitude >= 1) {
+            maxScale = MAX_DIGITS - digits((long) magnitude);
+        } else {
+            maxScale = MAX_DIGITS + (magnitude >= 0.1 ? 0 : magnitude >= 0.01 ? 1 : 2);
+        }
+
+        for (int scale = 1; scale <= maxScale; scale++) {
+            // 不超过15位的整数和10的幂都能被double精确表示，相除的结果就是该十进制数最接近的double
+            double scaled = Math.rint(magnitude * POW10[scale]);
+            if (scaled / POW10[scale] != magnitude) {
+                continue;
+            }
+
+            long digits = (long) scaled;
+            if (value < 0) {
+                builder.append('-');
+            }
+            builder.append(digits / LONG_POW10[scale]).append('.');
+            long fraction = digits % LONG_POW10[scale];
+            for (int i = digits(fraction); i < scale; i++) {
+                builder.append('0');
+            }
+            builder.append(fraction);
+            return true;
+        }
+        return false;
+    }
+
+    private static int digits(long value) {
+        int digits = 1;
+        while (digits < LONG_POW10.length && value >= LONG_POW10[digits]) {
+            digits++;
+        }
+        return digits;
+    }
+
+    private static String trim(String text) {
+        if (text.endsWith(".0")) {
+            return text.substring(0, text.length() - 2);
+        }
+        return text;
+    }
+
+    private static boolean isNegativeZero(double value) {
+        return Double.doubleToRawLongBits(value) == Long.MIN_VALUE;
+    }
+}
@@ -0,0 +1,348 @@
+package com.craftinginterpreters.lox;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author Javen-Liu
+ * @version 1.0
+ * @date 2026/10/19 10:12
+ * @github https://github.com/Javen-Liu
+ * 将一段语法树改写为等价但执行更快的语法树，作为分层执行中的第二层：
+ * 去除括号分组、折叠常量表达式、裁剪条件恒定的if/while分支、内联小函数（见Inliner）。
+ * 未发生变化的节点会被原样复用，被复制的Assign和Call节点记录在aliases中，
+ * 以便解释器把原节点的作用域距离和尾调用标记同步给新节点
+ */
+class Optimizer implements Expr.Visitor<Expr>, Stmt.Visitor<Stmt> {
+    private static final Stmt EMPTY = new Stmt.Block(new ArrayList<>());
+
+    /**
+     * 新节点 -> 原节点
+     */
+    private final Map<Expr, Expr> aliases = new HashMap<>();
+    private final Inliner inliner;
+
+    Optimizer(Inliner inliner) {
+        this.inliner = inliner;
+    }
+
+    Map<Expr, Expr> aliases() {
+        return aliases;
+    }
+
+    List<Stmt> optimize(List<Stmt> statements) {
+        List<Stmt> result = new ArrayList<>(statements.size());
+        boolean changed = false;
+        for (Stmt statement : statements) {
+            Stmt optimized = optimize(statement);
+            changed |= optimized != statement;
+            result.add(optimized);
+        }
+        return changed ? result : statements;
+    }
+
+    Stmt optimize(Stmt stmt) {
+        return stmt == null ? null : stmt.accept(this);
+    }
+
+    Expr optimize(Expr expr) {
+        return expr == null ? null : expr.accept(this);
+    }
+
+    /**
+     * 优化一个已经执行过的循环，返回值一定是while语句
+     * @param stmt 原循环
+     * @return 优化后的循环
+     */
+    Stmt.While optimizeLoop(Stmt.While stmt) {
+        Expr condition = optimize(stmt.condition);
+        Stmt body = optimize(stmt.body);
+        Expr increment = optimize(stmt.increment);
+        if (condition == stmt.condition && body == stmt.body && increment == stmt.increment) {
+            return stmt;
+        }
+        return new Stmt.While(condition, body, increment);
+    }
+
+    /**
+     * Expr的visit方法
+     */
+
+    @Override
+    public Expr visitAssignExpr(Expr.Assign expr) {
+        Expr value = optimize(expr.value);
+        if (value == expr.value) {
+            return expr;
+        }
+
+        Expr.Assign copy = new Expr.Assign(expr.name, value);
+        aliases.put(copy, expr);
+        return copy;
+    }
+
+    @Override
+    public Expr visitBinaryExpr(Expr.Binary expr) {
+        Expr left = optimize(expr.left);
+        Expr right = optimize(expr.right);
+
+        if (left instanceof Expr.Literal && right instanceof Expr.Literal) {
+            Object folded = fold(expr.operator,
+                    ((Expr.Literal) left).value, ((Expr.Literal) right).value);
+            if (folded != null) {
+                return new Expr.Literal(folded);
+            }
+        }
+
+        if (left == expr.left && right == expr.right) {
+            return expr;
+        }
+        Expr.Binary binary = new Expr.Binary(left, expr.operator, right);
+        binary.feedback.copy(expr.feedback);
+        return binary;
+    }
+
+    @Override
+    public Expr visitCallExpr(Expr.Call expr) {
+        Expr callee = optimize(expr.callee);
+        List<Expr> arguments = new ArrayList<>(expr.arguments.size());
+        boolean changed = callee != expr.callee;
+        for (Expr argument : expr.arguments) {
+            Expr optimized = optimize(argument);
+            changed |= optimized != argument;
+            arguments.add(optimized);
+        }
+
+        Expr.Call call = expr;
+        if (changed) {
+            call = new Expr.Call(callee, expr.paren, arguments);
+            aliases.put(call, expr);
+        }
+        Expr.Inline inline = inliner.inline(call);
+        return inline == null ? call : inline;
+    }
+
+    @Override
+    public Expr visitGetExpr(Expr.Get expr) {
+        Expr object = optimize(expr.object);
+        return object == expr.object ? expr : new Expr.Get(object, expr.name);
+    }
+
+    @Override
+    public Expr visitGroupingExpr(Expr.Grouping expr) {
+        return optimize(expr.expression);
+    }
+
+    @Override
+    public Expr visitLiteralExpr(Expr.Literal expr) {
+        return expr;
+    }
+
+    @Override
+    public Expr visitLogicExpr(Expr.Logic expr) {
+        Expr left = optimize(expr.left);
+        Expr right = optimize(expr.right);
+
+        if (left instanceof Expr.Literal) {
+            boolean truthy = Interpreter.isTruthy(((Expr.Literal) left).value);
+            boolean shortCircuit = expr.operator.type == TokenType.OR ? truthy : !truthy;
+            return shortCircuit ? left : right;
+        }
+
+        if (left == expr.left && right == expr.right) {
+            return expr;
+        }
+        return new Expr.Logic(left, expr.operator, right);
+    }
+
+    @Override
+    public Expr visitSetExpr(Expr.Set expr) {
+        Expr object = optimize(expr.object);
+        Expr value = optimize(expr.value);
+        if (object == expr.object && value == expr.value) {
+            return expr;
+        }
+        return new Expr.Set(object, expr.name, value);
+    }
+
+    @Override
+    public Expr visitSuperExpr(Expr.Super expr) {
+        return expr;
+    }
+
+    @Override
+    public Expr visitThisExpr(Expr.This expr) {
+        return expr;
+    }
+
+    @Override
+    public Expr visitUnaryExpr(Expr.Unary expr) {
+        Expr right = optimize(expr.right);
+
+        if (right instanceof Expr.Literal) {
+            Object value = ((Expr.Literal) right).value;
+            if (expr.operator.type == TokenType.BANG) {
+                return new Expr.Literal(!Interpreter.isTruthy(value));
+            }
+            if (expr.operator.type == TokenType.MINUS && value instanceof Double) {
+                return new Expr.Literal(-(double) value);
+            }
+        }
+
+        return right == expr.right ? expr : new Expr.Unary(expr.operator, right);
+    }
+
+    @Override
+    public Expr visitVariableExpr(Expr.Variable expr) {
+        return expr;
+    }
+
+    @Override
+    public Expr visitKeywordExpr(Expr.Keyword expr) {
+        return expr;
+    }
+
+    @Override
+    public Expr visitInlineExpr(Expr.Inline expr) {
+        return expr;
+    }
+
+    @Override
+    public Expr visitIndexExpr(Expr.Index expr) {
+        Expr object = optimize(expr.object);
+        Expr index = optimize(expr.index);
+        if (object == expr.object && index == expr.index) {
+            return expr;
+        }
+        return new Expr.Index(object, expr.bracket, index);
+    }
+
+    @Override
+    public Expr visitIndexSetExpr(Expr.IndexSet expr) {
+        Expr object = optimize(expr.object);
+        Expr index = optimize(expr.index);
+        Expr value = optimize(expr.value);
+        if (object == expr.object && index == expr.index && value == expr.value) {
+            return expr;
+        }
+        return new Expr.IndexSet(object, expr.bracket, index, value);
+    }
+
+    /**************************************************************************/
+
+    /**
+     * Stmt的visit方法
+     */
+
+    @Override
+    public Stmt visitBlockStmt(Stmt.Block stmt) {
+        List<Stmt> statements = optimize(stmt.statements);
+        return statements == stmt.statements ? stmt : new Stmt.Block(statements);
+    }
+
+    @Override
+    public Stmt visitClassStmt(Stmt.Class stmt) {
+        return stmt;
+    }
+
+    @Override
+    public Stmt visitExpressionStmt(Stmt.Expression stmt) {
+        Expr expression = optimize(stmt.expression);
+        return expression == stmt.expression ? stmt : new Stmt.Expression(expression);
+    }
+
+    @Override
+    public Stmt visitFunctionStmt(Stmt.Function stmt) {
+        // 内部函数有自己的计数器，单独晋升
+        return stmt;
+    }
+
+    @Override
+    public Stmt visitIfStmt(Stmt.If stmt) {
+        Expr condition = optimize(stmt.condition);
+        Stmt thenBranch = optimize(stmt.thenBranch);
+        Stmt elseBranch = optimize(stmt.elseBranch);
+
+        if (condition instanceof Expr.Literal) {
+            if (Interpreter.isTruthy(((Expr.Literal) condition).value)) {
+                return thenBranch;
+            }
+            return elseBranch == null ? EMPTY : elseBranch;
+        }
+
+        if (condition == stmt.condition && thenBranch == stmt.thenBranch
+                && elseBranch == stmt.elseBranch) {
+            return stmt;
+        }
+        return new Stmt.If(condition, thenBranch, elseBranch);
+    }
+
+    @Override
+    public Stmt visitPrintStmt(Stmt.Print stmt) {
+        Expr expression = optimize(stmt.expression);
+        return expression == stmt.expression ? stmt : new Stmt.Print(expression);
+    }
+
+    @Override
+    public Stmt visitReturnStmt(Stmt.Return stmt) {
+        Expr value = optimize(stmt.value);
+        return value == stmt.value ? stmt : new Stmt.Return(stmt.keyword, value);
+    }
+
+    @Override
+    public Stmt visitVarStmt(Stmt.Var stmt) {
+        Expr initializer = optimize(stmt.initializer);
+        return initializer == stmt.initializer ? stmt : new Stmt.Var(stmt.name, initializer);
+    }
+
+    @Override
+    public Stmt visitWhileStmt(Stmt.While stmt) {
+        Expr condition = optimize(stmt.condition);
+        if (condition instanceof Expr.Literal
+                && !Interpreter.isTruthy(((Expr.Literal) condition).value)) {
+            return EMPTY;
+        }
+
+        Stmt body = optimize(stmt.body);
+        Expr increment = optimize(stmt.increment);
+        if (condition == stmt.condition && body == stmt.body && increment == stmt.increment) {
+            return stmt;
+        }
+        return new Stmt.While(condition, body, increment);
+    }
+
+    /**************************************************************************/
+
+    /**
+     * 折叠两个常量的二元运算，只处理不会产生运行时错误的情况
+     * @return 折叠后的值，无法折叠时返回null
+     */
+    private Object fold(Token operator, Object left, Object right) {
+        switch (operator.type) {
+            case EQUAL_EQUAL:
+                return left == null ? right == null : left.equals(right);
+            case BANG_EQUAL:
+                return left == null ? right != null : !left.equals(right);
+            default:
+        }
+
+        if (!(left instanceof Double) || !(right instanceof Double)) {
+            return null;
+        }
+        double l = (double) left;
+        double r = (double) right;
+
+        switch (operator.type) {
+            case GREATER: return l > r;
+            case GREATER_EQUAL: return l >= r;
+            case LESS: return l < r;
+            case LESS_EQUAL: return l <= r;
+            case MINUS: return l - r;
+            case PLUS: return l + r;
+            case STAR: return l * r;
+            case SLASH: return r == 0 ? null : l / r;
+            default: return null;
+        }
+    }
+}
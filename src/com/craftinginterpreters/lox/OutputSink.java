@@ -0,0 +1,161 @@
+package com.craftinginterpreters.lox;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * @author Javen-Liu
+ * @version 1.0
+ * @date 2026/10/19 18:50
+ * @github https://github.com/Javen-Liu
+ * print语句的输出：文本先累积在解释器持有的缓冲区中，按刷新策略编码后成批写入通道，
+ * 编码方式和换行符与 System.out.println 相同，输出的字节不变。
+ * 解释器在每次执行结束和发生运行时错误时刷新
+ */
+final class OutputSink {
+    /**
+     * 刷新策略，通过 -Dlox.output.flush=line|size|exit 配置
+     */
+    enum Flush {
+        /**
+         * 每次print后刷新，用于交互模式
+         */
+        LINE,
+        /**
+         * 缓冲区满时刷新
+         */
+        SIZE,
+        /**
+         * 只在执行结束时刷新，缓冲区按需扩大
+         */
+        EXIT
+    }
+
+    /**
+     * 缓冲区大小（字符数），通过 -Dlox.output.buffer=n 配置
+     */
+    static final int BUFFER_SIZE = Integer.getInteger("lox.output.buffer", 1 << 16);
+
+    /**
+     * 通过 -Dlox.output.flush 指定的刷新策略，未指定或无法识别时为null
+     */
+    private static final Flush FLUSH = parseFlush(System.getProperty("lox.output.flush"));
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private final WritableByteChannel channel;
+    private final CharsetEncoder encoder;
+    private final StringBuilder chars = new StringBuilder(BUFFER_SIZE);
+    private final ByteBuffer bytes;
+    private Flush policy;
+
+    OutputSink(OutputStream out) {
+        this.channel = Channels.newChannel(out);
+
+        // 与JVM创建System.out时选择的编码一致，无法编码的字符同样替换为 '?'
+        String encoding = System.getProperty("sun.stdout.encoding");
+        Charset charset = encoding != null && Charset.isSupported(encoding) ?
+                Charset.forName(encoding) : Charset.defaultCharset();
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.bytes = ByteBuffer.allocate((int) (BUFFER_SIZE * encoder.maxBytesPerChar()) + 16);
+
+        this.policy = FLUSH == null ? Flush.SIZE : FLUSH;
+    }
+
+    /**
+     * 解析刷新策略，无法识别的值在标准错误上提示后按未指定处理
+     */
+    private static Flush parseFlush(String value) {
+        if (value == null) {
+            return null;
+        }
+        for (Flush flush : Flush.values()) {
+            if (flush.name().equalsIgnoreCase(value)) {
+                return flush;
+            }
+        }
+        System.err.println("[output] unknown lox.output.flush value '" + value +
+                "' (expected line, size or exit), ignored.");
+        return null;
+    }
+
+    /**
+     * 进入交互模式，未通过参数指定刷新策略时改为每行刷新
+     */
+    void interactive() {
+        if (FLUSH == null) {
+            policy = Flush.LINE;
+        }
+    }
+
+    /**
+     * 输出一行，数字和LazyString直接写入缓冲区，不先转换为String
+     */
+
+    void println(String text) {
+        chars.append(text);
+        endLine();
+    }
+
+    void println(double value) {
+        Numbers.append(chars, value);
+        endLine();
+    }
+
+    void println(LazyString text) {
+        text.appendTo(chars);
+        endLine();
+    }
+
+    private void endLine() {
+        chars.append(LINE_SEPARATOR);
+        if (policy == Flush.LINE || (policy == Flush.SIZE && chars.length() >= BUFFER_SIZE)) {
+            flush();
+        }
+    }
+
+    /**
+     * 将缓冲区中的文本全部编码并写出
+     */
+    void flush() {
+        if (chars.length() == 0) {
+            return;
+        }
+
+        CharBuffer in = CharBuffer.wrap(chars);
+        encoder.reset();
+        try {
+            while (true) {
+                CoderResult result = encoder.encode(in, bytes, true);
+                if (result.isUnderflow()) {
+                    break;
+                }
+                write();
+            }
+            encoder.flush(bytes);
+            write();
+        } catch (IOException e) {
+            System.err.println("[output] " + e.getMessage());
+        } finally {
+            bytes.clear();
+            chars.setLength(0);
+        }
+    }
+
+    private void write() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+}
@@ -190,16 +190,11 @@ public class Parser {
 
         Stmt body = statement();
 
-        if (increment != null) {
-            body = new Stmt.Block(
-                    Arrays.asList(body, new Stmt.Expression(increment))
-            );
-        }
-
         if (condition == null) {
             condition = new Expr.Literal(true);
         }
-        body = new Stmt.While(condition, body);
+        // 增量不再拼接在循环体之后，以便continue跳过循环体剩余部分时仍然执行增量
+        body = new Stmt.While(condition, body, increment);
 
         if (initializer != null) {
             body = new Stmt.Block(
@@ -248,7 +243,7 @@ public class Parser {
         consume(RIGHT_PAREN, "Expect ')' after condition.");
         Stmt body = statement();
 
-        return new Stmt.While(condition, body);
+        return new Stmt.While(condition, body, null);
     }
 
 
@@ -300,6 +295,9 @@ public class Parser {
             } else if (expr instanceof Expr.Get) {
                 Expr.Get get = (Expr.Get) expr;
                 return new Expr.Set(get.object, get.name, value);
+            } else if (expr instanceof Expr.Index) {
+                Expr.Index index = (Expr.Index) expr;
+                return new Expr.IndexSet(index.object, index.bracket, index.index, value);
             }
 
             error(equals, "Invalid assignment target.");
@@ -383,6 +381,12 @@ public class Parser {
         if (match(BANG, MINUS, MINUS_MINUS, PLUS_PLUS)) {
             Token operator = previous();
             Expr right = unary();
+
+            // ++ 和 -- 只能作用于变量
+            boolean increment = operator.type == MINUS_MINUS || operator.type == PLUS_PLUS;
+            if (increment && !(right instanceof Expr.Variable)) {
+                error(operator, "Invalid increment target.");
+            }
             return new Expr.Unary(operator, right);
         }
 
@@ -398,6 +402,11 @@ public class Parser {
             } else if (match(DOT)) {
                 Token name = consume(IDENTIFIER, "Expect property name after '.'.");
                 expr = new Expr.Get(expr, name);
+            } else if (match(LEFT_BRACKET)) {
+                Token bracket = previous();
+                Expr index = expression();
+                consume(RIGHT_BRACKET, "Expect ']' after index.");
+                expr = new Expr.Index(expr, bracket, index);
             } else {
                 break;
             }
@@ -0,0 +1,505 @@
+package com.craftinginterpreters.lox;
+
+import java.util.Objects;
+
+/**
+ * @author Javen-Liu
+ * @version 1.0
+ * @date 2026/10/19 21:20
+ * @github https://github.com/Javen-Liu
+ * 不可变的哈希表：哈希数组映射前缀树（HAMT）。
+ * 每层取哈希值的5位，节点用位图记录存在的分支，数组只存放实际存在的分支；
+ * 完整哈希值相同的键放在同一个冲突节点中。
+ * 修改只复制从根到目标的一条路径，其余节点与旧版本共享。
+ * 键的相等性与LoxMap相同，批量构建时使用Transient
+ */
+final class PersistentMap {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    static final PersistentMap EMPTY = new PersistentMap(0, null);
+
+    private final int size;
+    private final Node root;
+
+    private PersistentMap(int size, Node root) {
+        this.size = size;
+        this.root = root;
+    }
+
+    int size() {
+        return size;
+    }
+
+    Object get(Object key) {
+        key = checkKey(key);
+        return root == null ? null : root.find(0, key.hashCode(), key, null);
+    }
+
+    boolean containsKey(Object key) {
+        key = checkKey(key);
+        return root != null && root.find(0, key.hashCode(), key, Node.MISSING) != Node.MISSING;
+    }
+
+    /**
+     * @return 键key对应value的新表
+     */
+    PersistentMap put(Object key, Object value) {
+        key = checkKey(key);
+        boolean[] added = new boolean[1];
+        Node start = root == null ? BitmapNode.EMPTY : root;
+        Node newRoot = start.assoc(null, 0, key.hashCode(), key, value, added);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentMap(added[0] ? size + 1 : size, newRoot);
+    }
+
+    /**
+     * @return 删除键key后的新表
+     */
+    PersistentMap remove(Object key) {
+        key = checkKey(key);
+        if (root == null) {
+            return this;
+        }
+        Node newRoot = root.without(null, 0, key.hashCode(), key);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentMap(size - 1, newRoot);
+    }
+
+    LoxArray keys() {
+        LoxArray array = new LoxArray(size);
+        if (root != null) {
+            root.forEach((key, value) -> array.add(key));
+        }
+        return array;
+    }
+
+    LoxArray values() {
+        LoxArray array = new LoxArray(size);
+        if (root != null) {
+            root.forEach((key, value) -> array.add(value));
+        }
+        return array;
+    }
+
+    Transient asTransient() {
+        return new Transient(this);
+    }
+
+    /**************************************************************************/
+
+    private static Object checkKey(Object key) {
+        if (key == null) {
+            throw new NativeError("Map key cannot be nil.");
+        }
+        return LazyString.flatten(key);
+    }
+
+    private interface EntryVisitor {
+        void visit(Object key, Object value);
+    }
+
+    /**
+     * 节点的修改方法在edit与节点自己的标记相同时直接修改节点，否则返回修改后的副本。
+     * 不可变的表传入的edit为null，总是复制
+     */
+    private static abstract class Node {
+        static final Object MISSING = new Object();
+
+        final Object edit;
+
+        Node(Object edit) {
+            this.edit = edit;
+        }
+
+        boolean ownedBy(Object edit) {
+            return edit != null && this.edit == edit;
+        }
+
+        abstract Object find(int shift, int hash, Object key, Object missing);
+
+        abstract Node assoc(Object edit, int shift, int hash, Object key, Object value, boolean[] added);
+
+        /**
+         * @return 删除后的节点，节点变为空时返回null，键不存在时返回自身
+         */
+        abstract Node without(Object edit, int shift, int hash, Object key);
+
+        abstract void forEach(EntryVisitor visitor);
+    }
+
+    /**
+     * 按位图索引的节点，array中每个分支占两个位置：
+     * 键和值，或者null和子节点
+     */
+    private static final class BitmapNode extends Node {
+        static final BitmapNode EMPTY = new BitmapNode(null, 0, new Object[0]);
+
+        int bitmap;
+        Object[] array;
+
+        BitmapNode(Object edit, int bitmap, Object[] array) {
+            super(edit);
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        private static int bit(int hash, int shift) {
+            return 1 << ((hash >>> shift) & MASK);
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key, Object missing) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return missing;
+            }
+            int i = 2 * index(bit);
+            Object k = array[i];
+            if (k == null) {
+                return ((Node) array[i + 1]).find(shift + BITS, hash, key, missing);
+            }
+            return k.equals(key) ? array[i + 1] : missing;
+        }
+
+        @Override
+        Node assoc(Object edit, int shift, int hash, Object key, Object value, boolean[] added) {
+            int bit = bit(hash, shift);
+            int i = 2 * index(bit);
+            if ((bitmap & bit) == 0) {
+                Object[] newArray = new Object[array.length + 2];
+                System.arraycopy(array, 0, newArray, 0, i);
+                newArray[i] = key;
+                newArray[i + 1] = value;
+                System.arraycopy(array, i, newArray, i + 2, array.length - i);
+                added[0] = true;
+                BitmapNode node = editable(edit);
+                node.bitmap |= bit;
+                node.array = newArray;
+                return node;
+            }
+
+            Object k = array[i];
+            Object v = array[i + 1];
+            if (k == null) {
+                Node child = (Node) v;
+                Node newChild = child.assoc(edit, shift + BITS, hash, key, value, added);
+                if (newChild == child) {
+                    return this;
+                }
+                BitmapNode node = editable(edit);
+                node.array[i + 1] = newChild;
+                return node;
+            }
+            if (k.equals(key)) {
+                if (v == value) {
+                    return this;
+                }
+                BitmapNode node = editable(edit);
+                node.array[i + 1] = value;
+                return node;
+            }
+
+            // 两个键在这一层冲突，一起放入下一层的子节点
+            added[0] = true;
+            BitmapNode node = editable(edit);
+            node.array[i] = null;
+            node.array[i + 1] = create(edit, shift + BITS, k, v, hash, key, value);
+            return node;
+        }
+
+        @Override
+        Node without(Object edit, int shift, int hash, Object key) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int i = 2 * index(bit);
+            Object k = array[i];
+            if (k == null) {
+                Node child = (Node) array[i + 1];
+                Node newChild = child.without(edit, shift + BITS, hash, key);
+                if (newChild == child) {
+                    return this;
+                }
+                if (newChild != null) {
+                    BitmapNode node = editable(edit);
+                    node.array[i + 1] = newChild;
+                    return node;
+                }
+            } else if (!k.equals(key)) {
+                return this;
+            }
+
+            if (bitmap == bit) {
+                return null;
+            }
+            Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, i);
+            System.arraycopy(array, i + 2, newArray, i, array.length - i - 2);
+            BitmapNode node = editable(edit);
+            node.bitmap ^= bit;
+            node.array = newArray;
+            return node;
+        }
+
+        @Override
+        void forEach(EntryVisitor visitor) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (array[i] == null) {
+                    ((Node) array[i + 1]).forEach(visitor);
+                } else {
+                    visitor.visit(array[i], array[i + 1]);
+                }
+            }
+        }
+
+        private BitmapNode editable(Object edit) {
+            if (ownedBy(edit)) {
+                return this;
+            }
+            return new BitmapNode(edit, bitmap, array.clone());
+        }
+    }
+
+    /**
+     * 完整哈希值相同的键，array中依次存放键和值
+     */
+    private static final class CollisionNode extends Node {
+        final int hash;
+        Object[] array;
+
+        CollisionNode(Object edit, int hash, Object[] array) {
+            super(edit);
+            this.hash = hash;
+            this.array = array;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (array[i].equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key, Object missing) {
+            int i = indexOf(key);
+            return i < 0 ? missing : array[i + 1];
+        }
+
+        @Override
+        Node assoc(Object edit, int shift, int hash, Object key, Object value, boolean[] added) {
+            if (hash != this.hash) {
+                // 放进一个位图节点中，再由位图节点按哈希值分开
+                BitmapNode parent = new BitmapNode(edit, BitmapNode.bit(this.hash, shift), new Object[]{null, this});
+                return parent.assoc(edit, shift, hash, key, value, added);
+            }
+            int i = indexOf(key);
+            if (i >= 0) {
+                if (array[i + 1] == value) {
+                    return this;
+                }
+                CollisionNode node = editable(edit);
+                node.array[i + 1] = value;
+                return node;
+            }
+            Object[] newArray = new Object[array.length + 2];
+            System.arraycopy(array, 0, newArray, 0, array.length);
+            newArray[array.length] = key;
+            newArray[array.length + 1] = value;
+            added[0] = true;
+            CollisionNode node = editable(edit);
+            node.array = newArray;
+            return node;
+        }
+
+        @Override
+        Node without(Object edit, int shift, int hash, Object key) {
+            int i = indexOf(key);
+            if (i < 0) {
+                return this;
+            }
+            if (array.length == 2) {
+                return null;
+            }
+            Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, i);
+            System.arraycopy(array, i + 2, newArray, i, array.length - i - 2);
+            CollisionNode node = editable(edit);
+            node.array = newArray;
+            return node;
+        }
+
+        @Override
+        void forEach(EntryVisitor visitor) {
+            for (int i = 0; i < array.length; i += 2) {
+                visitor.visit(array[i], array[i + 1]);
+            }
+        }
+
+        private CollisionNode editable(Object edit) {
+            if (ownedBy(edit)) {
+                return this;
+            }
+            return new CollisionNode(edit, hash, array.clone());
+        }
+    }
+
+    /**
+     * 为哈希值在shift之前的各层都相同的两个键创建子节点
+     */
+    private static Node create(Object edit, int shift, Object key1, Object value1,
+                               int hash2, Object key2, Object value2) {
+        int hash1 = key1.hashCode();
+        if (hash1 == hash2) {
+            return new CollisionNode(edit, hash1, new Object[]{key1, value1, key2, value2});
+        }
+        boolean[] added = new boolean[1];
+        return BitmapNode.EMPTY
+                .assoc(edit, shift, hash1, key1, value1, added)
+                .assoc(edit, shift, hash2, key2, value2, added);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PersistentMap) || ((PersistentMap) o).size != size) {
+            return false;
+        }
+        PersistentMap other = (PersistentMap) o;
+        boolean[] equal = {true};
+        if (root != null) {
+            root.forEach((key, value) -> {
+                if (equal[0]) {
+                    Object found = other.root.find(0, key.hashCode(), key, Node.MISSING);
+                    equal[0] = found != Node.MISSING && Objects.equals(found, value);
+                }
+            });
+        }
+        return equal[0];
+    }
+
+    @Override
+    public int hashCode() {
+        int[] hash = {0};
+        if (root != null) {
+            root.forEach((key, value) -> hash[0] += key.hashCode() ^ Objects.hashCode(value));
+        }
+        return hash[0];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        if (root != null) {
+            root.forEach((key, value) -> {
+                if (builder.length() > 1) {
+                    builder.append(", ");
+                }
+                builder.append(Interpreter.stringify(key)).append(": ")
+                        .append(Interpreter.stringify(value));
+            });
+        }
+        return builder.append('}').toString();
+    }
+
+    /**
+     * 可变的构建器，只修改带有自己标记的节点，persistent之后不能再使用
+     */
+    static final class Transient {
+        private Object edit = new Object();
+        private int size;
+        private Node root;
+
+        private Transient(PersistentMap map) {
+            this.size = map.size;
+            this.root = map.root;
+        }
+
+        int size() {
+            return size;
+        }
+
+        Object get(Object key) {
+            ensureEditable();
+            key = checkKey(key);
+            return root == null ? null : root.find(0, key.hashCode(), key, null);
+        }
+
+        boolean containsKey(Object key) {
+            ensureEditable();
+            key = checkKey(key);
+            return root != null && root.find(0, key.hashCode(), key, Node.MISSING) != Node.MISSING;
+        }
+
+        LoxArray keys() {
+            ensureEditable();
+            return new PersistentMap(size, root).keys();
+        }
+
+        LoxArray values() {
+            ensureEditable();
+            return new PersistentMap(size, root).values();
+        }
+
+        void put(Object key, Object value) {
+            ensureEditable();
+            key = checkKey(key);
+            boolean[] added = new boolean[1];
+            Node start = root == null ? BitmapNode.EMPTY : root;
+            root = start.assoc(edit, 0, key.hashCode(), key, value, added);
+            if (added[0]) {
+                size++;
+            }
+        }
+
+        /**
+         * @return 被删除的值，键不存在时为null
+         */
+        Object remove(Object key) {
+            ensureEditable();
+            key = checkKey(key);
+            // 自己的节点会被直接修改，不能用返回的节点是否相同来判断键是否存在
+            Object previous = root == null ? Node.MISSING : root.find(0, key.hashCode(), key, Node.MISSING);
+            if (previous == Node.MISSING) {
+                return null;
+            }
+            root = root.without(edit, 0, key.hashCode(), key);
+            size--;
+            return previous;
+        }
+
+        /**
+         * 冻结为不可变的表
+         */
+        PersistentMap persistent() {
+            ensureEditable();
+            edit = null;
+            return new PersistentMap(size, root);
+        }
+
+        private void ensureEditable() {
+            if (edit == null) {
+                throw new NativeError("Transient used after persistent().");
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "<transient map>";
+        }
+    }
+}
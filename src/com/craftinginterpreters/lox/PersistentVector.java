@@ -0,0 +1,282 @@
+package com.craftinginterpreters.lox;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * @author Javen-Liu
+ * @version 1.0
+ * @date 2026/10/19 21:00
+ * @github https://github.com/Javen-Liu
+ * 不可变的向量：32路的前缀树，最后不满32个的元素单独放在tail中。
+ * 每次修改只复制从根到目标叶子的一条路径（O(log32 n)），其余节点与旧版本共享。
+ * 批量构建时使用Transient，在只属于自己的节点上直接修改，完成后再冻结为不可变的向量
+ */
+final class PersistentVector {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private static final Node EMPTY_NODE = new Node(null, new Object[WIDTH]);
+    static final PersistentVector EMPTY = new PersistentVector(0, BITS, EMPTY_NODE, new Object[0]);
+
+    /**
+     * 树中的节点，edit为创建它的Transient的标记，不可变的节点为null
+     */
+    private static final class Node {
+        final Object edit;
+        final Object[] array;
+
+        Node(Object edit, Object[] array) {
+            this.edit = edit;
+            this.array = array;
+        }
+    }
+
+    private final int count;
+    private final int shift;
+    private final Node root;
+    private final Object[] tail;
+
+    private PersistentVector(int count, int shift, Node root, Object[] tail) {
+        this.count = count;
+        this.shift = shift;
+        this.root = root;
+        this.tail = tail;
+    }
+
+    int size() {
+        return count;
+    }
+
+    Object get(int index) {
+        return arrayFor(index, count, shift, root, tail)[index & MASK];
+    }
+
+    /**
+     * @return 第index个元素替换为value后的新向量
+     */
+    PersistentVector set(int index, Object value) {
+        value = LazyString.flatten(value);
+        if (index >= tailOffset(count)) {
+            Object[] newTail = tail.clone();
+            newTail[index & MASK] = value;
+            return new PersistentVector(count, shift, root, newTail);
+        }
+        return new PersistentVector(count, shift, assoc(null, shift, root, index, value), tail);
+    }
+
+    /**
+     * @return 末尾追加value后的新向量
+     */
+    PersistentVector add(Object value) {
+        value = LazyString.flatten(value);
+        if (count - tailOffset(count) < WIDTH) {
+            Object[] newTail = Arrays.copyOf(tail, tail.length + 1);
+            newTail[tail.length] = value;
+            return new PersistentVector(count + 1, shift, root, newTail);
+        }
+
+        // tail已满，放入树中
+        Node tailNode = new Node(null, tail);
+        int newShift = shift;
+        Node newRoot;
+        if ((count >>> BITS) > (1 << shift)) {
+            newRoot = new Node(null, new Object[WIDTH]);
+            newRoot.array[0] = root;
+            newRoot.array[1] = newPath(null, shift, tailNode);
+            newShift += BITS;
+        } else {
+            newRoot = pushTail(null, count, shift, root, tailNode);
+        }
+        return new PersistentVector(count + 1, newShift, newRoot, new Object[]{value});
+    }
+
+    Transient asTransient() {
+        return new Transient(this);
+    }
+
+    /**************************************************************************/
+
+    private static int tailOffset(int count) {
+        return count < WIDTH ? 0 : ((count - 1) >>> BITS) << BITS;
+    }
+
+    private static Object[] arrayFor(int index, int count, int shift, Node root, Object[] tail) {
+        if (index >= tailOffset(count)) {
+            return tail;
+        }
+        Node node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Node) node.array[(index >>> level) & MASK];
+        }
+        return node.array;
+    }
+
+    /**
+     * 返回可以修改的节点：属于edit的节点直接返回，否则复制一份
+     */
+    private static Node editable(Object edit, Node node) {
+        if (edit != null && node.edit == edit) {
+            return node;
+        }
+        return new Node(edit, node.array.clone());
+    }
+
+    private static Node assoc(Object edit, int level, Node node, int index, Object value) {
+        Node result = editable(edit, node);
+        if (level == 0) {
+            result.array[index & MASK] = value;
+        } else {
+            int sub = (index >>> level) & MASK;
+            result.array[sub] = assoc(edit, level - BITS, (Node) node.array[sub], index, value);
+        }
+        return result;
+    }
+
+    private static Node pushTail(Object edit, int count, int level, Node parent, Node tailNode) {
+        int sub = ((count - 1) >>> level) & MASK;
+        Node result = editable(edit, parent);
+        Node insert;
+        if (level == BITS) {
+            insert = tailNode;
+        } else {
+            Node child = (Node) parent.array[sub];
+            insert = child != null ?
+                    pushTail(edit, count, level - BITS, child, tailNode) :
+                    newPath(edit, level - BITS, tailNode);
+        }
+        result.array[sub] = insert;
+        return result;
+    }
+
+    private static Node newPath(Object edit, int level, Node node) {
+        if (level == 0) {
+            return node;
+        }
+        Node result = new Node(edit, new Object[WIDTH]);
+        result.array[0] = newPath(edit, level - BITS, node);
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PersistentVector) || ((PersistentVector) o).count != count) {
+            return false;
+        }
+        PersistentVector other = (PersistentVector) o;
+        for (int i = 0; i < count; i++) {
+            if (!Objects.equals(get(i), other.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int i = 0; i < count; i++) {
+            hash = 31 * hash + Objects.hashCode(get(i));
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(Interpreter.stringify(get(i)));
+        }
+        return builder.append(']').toString();
+    }
+
+    /**
+     * 可变的构建器，只修改带有自己标记的节点，persistent之后不能再使用
+     */
+    static final class Transient {
+        private Object edit = new Object();
+        private int count;
+        private int shift;
+        private Node root;
+        private Object[] tail;
+
+        private Transient(PersistentVector vector) {
+            this.count = vector.count;
+            this.shift = vector.shift;
+            this.root = editable(edit, vector.root);
+            this.tail = Arrays.copyOf(vector.tail, WIDTH);
+        }
+
+        int size() {
+            return count;
+        }
+
+        Object get(int index) {
+            ensureEditable();
+            return arrayFor(index, count, shift, root, tail)[index & MASK];
+        }
+
+        void set(int index, Object value) {
+            ensureEditable();
+            value = LazyString.flatten(value);
+            if (index >= tailOffset(count)) {
+                tail[index & MASK] = value;
+            } else {
+                root = assoc(edit, shift, root, index, value);
+            }
+        }
+
+        void add(Object value) {
+            ensureEditable();
+            value = LazyString.flatten(value);
+            int index = count;
+            if (index - tailOffset(count) < WIDTH) {
+                tail[index & MASK] = value;
+                count++;
+                return;
+            }
+
+            Node tailNode = new Node(edit, tail);
+            tail = new Object[WIDTH];
+            tail[0] = value;
+            if ((count >>> BITS) > (1 << shift)) {
+                Node newRoot = new Node(edit, new Object[WIDTH]);
+                newRoot.array[0] = root;
+                newRoot.array[1] = newPath(edit, shift, tailNode);
+                root = newRoot;
+                shift += BITS;
+            } else {
+                root = pushTail(edit, count, shift, root, tailNode);
+            }
+            count++;
+        }
+
+        /**
+         * 冻结为不可变的向量
+         */
+        PersistentVector persistent() {
+            ensureEditable();
+            edit = null;
+            int tailSize = count - tailOffset(count);
+            return new PersistentVector(count, shift, root, Arrays.copyOf(tail, tailSize));
+        }
+
+        private void ensureEditable() {
+            if (edit == null) {
+                throw new NativeError("Transient used after persistent().");
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "<transient vector>";
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package com.craftinginterpreters.lox;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @author Javen-Liu
+ * @version 1.0
+ * @date 2026/10/19 11:30
+ * @github https://github.com/Javen-Liu
+ * 性能剖析信息：记录热点函数的调用次数，以及visitBinaryExpr处的操作数类型、
+ * visitCallExpr处的调用目标、visitGetExpr处的实例形状。
+ * 每个位置用其Token在源码中的偏移量标识，剖析文件以源码的SHA-256作为键，
+ * 与源码不匹配（过期或损坏）的剖析文件会被丢弃并重新记录。
+ * 只有在记录时才需要关闭解释器的快速路径，读取到有效剖析文件的运行不记录。
+ * 读取到的信息在解析时和定义类、函数时预先填入各个位置的类型反馈、属性缓存和调用缓存
+ */
+class Profile {
+    private static final String HEADER = "jlox-profile 2";
+
+    private static final int NIL = 0;
+    private static final int BOOLEAN = 1;
+    private static final int NUMBER = 2;
+    private static final int STRING = 3;
+    private static final int INSTANCE = 4;
+    private static final int CALLABLE = 5;
+    private static final int OTHER = 6;
+    private static final int TYPES = 7;
+    private static final long NUMBERS = 1L << (NUMBER * TYPES + NUMBER);
+
+    private final Path path;
+    private final String hash;
+
+    /**
+     * 剖析文件不存在或被丢弃时为true：本次运行记录剖析信息并在结束时写回。
+     * 读取到有效的剖析文件时为false：只使用其中的信息，不再记录，解释器的快速路径全部保持开启
+     */
+    private boolean recording = true;
+
+    /**
+     * 上一次运行中已经越过晋升阈值的函数，本次运行在首次调用时直接晋升
+     */
+    private final Set<Integer> hotFunctions = new HashSet<>();
+
+    private final Map<Integer, Long> functionCounts = new HashMap<>();
+    private final Map<Integer, Long> binaryTypes = new HashMap<>();
+    private final Map<Integer, Map<String, Long>> callTargets = new HashMap<>();
+    private final Map<Integer, Map<String, Long>> getShapes = new HashMap<>();
+
+    /**
+     * 等待类或函数定义后才能填入的位置，以类名或函数名为键，填入后删除
+     */
+    private final Map<String, List<ShapeSeed>> pendingGets = new HashMap<>();
+    private final Map<String, List<Expr.Call>> pendingCalls = new HashMap<>();
+
+    /**
+     * 属性读取位置上见过的一个形状，按字段添加顺序保存字段名
+     */
+    private static final class ShapeSeed {
+        final Expr.Get site;
+        final String[] fields;
+
+        ShapeSeed(Expr.Get site, String[] fields) {
+            this.site = site;
+            this.fields = fields;
+        }
+    }
+
+    private Profile(Path path, String hash) {
+        this.path = path;
+        this.hash = hash;
+    }
+
+    /**
+     * 读取剖析文件，文件不存在、损坏或者与源码不匹配时返回一个空的剖析
+     * @param path 剖析文件路径
+     * @param source 本次运行的源码
+     * @return 剖析信息
+     */
+    static Profile load(Path path, String source) {
+        Profile profile = new Profile(path, hash(source));
+
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            if (!HEADER.equals(reader.readLine())) {
+                return discard(profile, "has an unknown format");
+            }
+            if (!("hash " + profile.hash).equals(reader.readLine())) {
+                return discard(profile, "does not match the source");
+            }
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                profile.read(line.split(" "));
+            }
+            profile.recording = false;
+        } catch (NoSuchFileException e) {
+            return profile;
+        } catch (IOException | RuntimeException e) {
+            return discard(profile, "cannot be read");
+        }
+
+        for (Map.Entry<Integer, Long> entry : profile.functionCounts.entrySet()) {
+            if (TierManager.THRESHOLD > 0 && entry.getValue() >= TierManager.THRESHOLD) {
+                profile.hotFunctions.add(entry.getKey());
+            }
+        }
+        return profile;
+    }
+
+    private static Profile discard(Profile profile, String reason) {
+        System.err.println("[profile] " + profile.path + " " + reason + ", ignored.");
+        return new Profile(profile.path, profile.hash);
+    }
+
+    private void read(String[] fields) {
+        int site = Integer.parseInt(fields[1]);
+        switch (fields[0]) {
+            case "function":
+                functionCounts.put(site, Long.parseLong(fields[2]));
+                break;
+            case "binary":
+                binaryTypes.put(site, Long.parseLong(fields[2]));
+                break;
+            case "call":
+                callTargets.computeIfAbsent(site, k -> new HashMap<>())
+                        .put(fields[2], Long.parseLong(fields[3]));
+                break;
+            case "get":
+                getShapes.computeIfAbsent(site, k -> new HashMap<>())
+                        .put(fields[2], Long.parseLong(fields[3]));
+                break;
+            default:
+                throw new IllegalArgumentException(fields[0]);
+        }
+    }
+
+    boolean isRecording() {
+        return recording;
+    }
+
+    /**
+     * 将本次运行记录的剖析信息写回剖析文件，只读取了剖析文件时不写
+     */
+    void save() {
+        if (!recording) {
+            return;
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.newLine();
+            writer.write("hash " + hash);
+            writer.newLine();
+
+            for (Map.Entry<Integer, Long> entry : functionCounts.entrySet()) {
+                writer.write("function " + entry.getKey() + " " + entry.getValue());
+                writer.newLine();
+            }
+            for (Map.Entry<Integer, Long> entry : binaryTypes.entrySet()) {
+                writer.write("binary " + entry.getKey() + " " + entry.getValue());
+                writer.newLine();
+            }
+            write(writer, "call", callTargets);
+            write(writer, "get", getShapes);
+        } catch (IOException e) {
+            System.err.println("[profile] cannot write " + path + ": " + e.getMessage());
+        }
+    }
+
+    private void write(BufferedWriter writer, String kind,
+                       Map<Integer, Map<String, Long>> sites) throws IOException {
+        for (Map.Entry<Integer, Map<String, Long>> site : sites.entrySet()) {
+            for (Map.Entry<String, Long> entry : site.getValue().entrySet()) {
+                writer.write(kind + " " + site.getKey() + " " +
+                        entry.getKey() + " " + entry.getValue());
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * 记录方法
+     */
+
+    void enter(Stmt.Function function) {
+        functionCounts.merge(function.name.offset, 1L, Long::sum);
+    }
+
+    void binary(Expr.Binary expr, Object left, Object right) {
+        long seen = 1L << (typeOf(left) * TYPES + typeOf(right));
+        binaryTypes.merge(expr.operator.offset, seen, (a, b) -> a | b);
+    }
+
+    void call(Expr.Call expr, Object callee) {
+        String target;
+        if (callee instanceof LoxFunction) {
+            target = ((LoxFunction) callee).name();
+        } else if (callee instanceof LoxClass) {
+            target = ((LoxClass) callee).name;
+        } else if (callee instanceof LoxCallable) {
+            target = "<native>";
+        } else {
+            target = "<none>";
+        }
+        callTargets.computeIfAbsent(expr.paren.offset, k -> new HashMap<>())
+                .merge(target, 1L, Long::sum);
+    }
+
+    void get(Expr.Get expr, Object object) {
+        String shape = object instanceof LoxInstance ?
+                ((LoxInstance) object).shape().description() : "<none>";
+        getShapes.computeIfAbsent(expr.name.offset, k -> new HashMap<>())
+                .merge(shape, 1L, Long::sum);
+    }
+
+    /**
+     * 查询方法
+     */
+
+    boolean isHot(Stmt.Function function) {
+        return hotFunctions.contains(function.name.offset);
+    }
+
+    /**
+     * 预填方法，由Resolver在解析时调用
+     */
+
+    /**
+     * 只见过两个数字的位置标记为numeric，从未见过两个数字的位置标记为generic
+     */
+    void seed(Expr.Binary expr) {
+        Long seen = binaryTypes.get(expr.operator.offset);
+        if (seen == null) {
+            return;
+        }
+        expr.feedback.numeric = seen == NUMBERS;
+        expr.feedback.generic = (seen & NUMBERS) == 0;
+    }
+
+    /**
+     * 形状属于某个类，等到该类定义后再按出现次数从多到少填入属性缓存
+     */
+    void seed(Expr.Get expr) {
+        Map<String, Long> shapes = getShapes.get(expr.name.offset);
+        if (shapes == null) {
+            return;
+        }
+
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(shapes.entrySet());
+        entries.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+        for (Map.Entry<String, Long> entry : entries) {
+            int colon = entry.getKey().indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            String klass = entry.getKey().substring(0, colon);
+            String fields = entry.getKey().substring(colon + 1);
+            pendingGets.computeIfAbsent(klass, k -> new ArrayList<>())
+                    .add(new ShapeSeed(expr, fields.isEmpty() ? new String[0] : fields.split(",")));
+        }
+    }
+
+    /**
+     * 只处理单态且目标是Lox函数或类的调用点，等到目标定义后填入调用缓存
+     */
+    void seed(Expr.Call expr) {
+        Map<String, Long> targets = callTargets.get(expr.paren.offset);
+        if (targets == null || targets.size() != 1) {
+            return;
+        }
+
+        String target = targets.keySet().iterator().next();
+        if (!target.startsWith("<")) {
+            pendingCalls.computeIfAbsent(target, k -> new ArrayList<>()).add(expr);
+        }
+    }
+
+    /**
+     * 类定义后调用：按记录的字段顺序构造形状并填入属性缓存，把构造调用填入调用缓存
+     */
+    void defined(LoxClass klass) {
+        List<ShapeSeed> seeds = pendingGets.remove(klass.name);
+        if (seeds != null) {
+            for (ShapeSeed seed : seeds) {
+                Shape shape = klass.rootShape;
+                for (String field : seed.fields) {
+                    shape = shape.with(field);
+                }
+                seed.site.cache.seed(shape, seed.site.name);
+            }
+        }
+        seedCalls(klass.name, klass);
+    }
+
+    /**
+     * 函数或方法定义后调用：直接调用它的位置跳过可调用性和参数数量检查
+     */
+    void defined(LoxFunction function) {
+        seedCalls(function.name(), function);
+    }
+
+    private void seedCalls(String name, LoxCallable callee) {
+        List<Expr.Call> calls = pendingCalls.remove(name);
+        if (calls == null) {
+            return;
+        }
+        for (Expr.Call call : calls) {
+            if (call.arguments.size() == callee.arity()) {
+                call.cache.callee = callee;
+            }
+        }
+    }
+
+    /**************************************************************************/
+
+    private static int typeOf(Object value) {
+        if (value == null) {
+            return NIL;
+        }
+        if (value instanceof Boolean) {
+            return BOOLEAN;
+        }
+        if (value instanceof Double) {
+            return NUMBER;
+        }
+        if (LazyString.isString(value)) {
+            return STRING;
+        }
+        if (value instanceof LoxInstance) {
+            return INSTANCE;
+        }
+        if (value instanceof LoxCallable) {
+            return CALLABLE;
+        }
+        return OTHER;
+    }
+
+    private static String hash(String source) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            StringBuilder builder = new StringBuilder();
+            for (byte b : digest.digest(source.getBytes(StandardCharsets.UTF_8))) {
+                builder.append(String.format("%02x", b));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
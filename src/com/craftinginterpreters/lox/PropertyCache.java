@@ -0,0 +1,134 @@
+package com.craftinginterpreters.lox;
+
+/**
+ * @author Javen-Liu
+ * @version 1.0
+ * @date 2026/10/19 16:45
+ * @github https://github.com/Javen-Liu
+ * 属性读写位置的内联缓存，存放在每个Expr.Get和Expr.Set节点上。
+ * 以实例的形状为键，缓存字段的槽位、查找到的方法，或者添加字段时的形状转换，
+ * 最多缓存POLYMORPHIC个形状，超过后不再缓存，每次都完整查找
+ */
+final class PropertyCache {
+    private static final int POLYMORPHIC = 4;
+
+    private final Shape[] shapes = new Shape[POLYMORPHIC];
+    private final int[] slots = new int[POLYMORPHIC];
+    private final LoxFunction[] methods = new LoxFunction[POLYMORPHIC];
+    private final Shape[] transitions = new Shape[POLYMORPHIC];
+    private int size = 0;
+
+    /**
+     * 读取属性
+     * @param instance 实例
+     * @param name 属性名
+     * @return 字段值或绑定了实例的方法
+     */
+    Object get(LoxInstance instance, Token name) {
+        Shape shape = instance.shape();
+        for (int i = 0; i < size; i++) {
+            if (shapes[i] == shape) {
+                return methods[i] == null ? instance.slot(slots[i]) : methods[i].bind(instance);
+            }
+        }
+
+        // 未命中，完整查找（同时报告错误），成功后再记录
+        Object value = instance.get(name);
+        int index = shape.indexOf(name.lexeme);
+        add(shape, index, index >= 0 ? null : shape.klass.findMethod(name.lexeme), null);
+        return value;
+    }
+
+    /**
+     * 为 obj.m(...) 查找方法，命中时不需要绑定实例
+     * @param instance 实例
+     * @param name 方法名
+     * @return 方法，属性是字段时返回null
+     */
+    LoxFunction method(LoxInstance instance, Token name) {
+        Shape shape = instance.shape();
+        for (int i = 0; i < size; i++) {
+            if (shapes[i] == shape) {
+                return methods[i];
+            }
+        }
+
+        int index = shape.indexOf(name.lexeme);
+        if (index >= 0) {
+            add(shape, index, null, null);
+            return null;
+        }
+
+        LoxFunction method = shape.klass.findMethod(name.lexeme);
+        if (method == null) {
+            // 报告与普通属性读取相同的错误
+            instance.get(name);
+        }
+        add(shape, -1, method, null);
+        return method;
+    }
+
+    /**
+     * 写入字段
+     * @param instance 实例
+     * @param name 字段名
+     * @param value 字段值
+     */
+    void set(LoxInstance instance, Token name, Object value) {
+        Shape shape = instance.shape();
+        for (int i = 0; i < size; i++) {
+            if (shapes[i] == shape) {
+                if (transitions[i] == null) {
+                    instance.setSlot(slots[i], value);
+                } else {
+                    instance.addSlot(transitions[i], value);
+                }
+                return;
+            }
+        }
+
+        instance.set(name, value);
+        int index = shape.indexOf(name.lexeme);
+        if (index >= 0) {
+            add(shape, index, null, null);
+        } else {
+            add(shape, -1, null, instance.shape());
+        }
+    }
+
+    /**
+     * 根据剖析信息预先填入一个形状，内容与运行时未命中后记录的相同。
+     * 形状已缓存或者属性不存在（运行时会报错）时不填
+     * @param shape 上一次运行中在此处见过的形状
+     * @param name 属性名
+     */
+    void seed(Shape shape, Token name) {
+        for (int i = 0; i < size; i++) {
+            if (shapes[i] == shape) {
+                return;
+            }
+        }
+
+        int index = shape.indexOf(name.lexeme);
+        if (index >= 0) {
+            add(shape, index, null, null);
+            return;
+        }
+        LoxFunction method = shape.klass.findMethod(name.lexeme);
+        if (method != null) {
+            add(shape, -1, method, null);
+        }
+    }
+
+    private void add(Shape shape, int slot, LoxFunction method, Shape transition) {
+        if (size == POLYMORPHIC) {
+            return;
+        }
+
+        shapes[size] = shape;
+        slots[size] = slot;
+        methods[size] = method;
+        transitions[size] = transition;
+        size++;
+    }
+}
@@ -1,5 +1,6 @@
 package com.craftinginterpreters.lox;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -16,6 +17,11 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void>{
     private final Stack<Map<String, Boolean>> scopes = new Stack<>();
     private FunctionType currentFunction = FunctionType.NONE;
     private ClassType currentClass = ClassType.NONE;
+
+    /**
+     * 当前类的方法中出现的 super 表达式，类定义时由解释器统一绑定
+     */
+    private List<Expr.Super> currentSupers = null;
     private boolean currentLoop = false;
 
     Resolver(Interpreter interpreter) {
@@ -46,6 +52,9 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void>{
     public Void visitAssignExpr(Expr.Assign expr) {
         resolve(expr.value);
         resolveLocal(expr, expr.name);
+        if (!isLocal(expr.name)) {
+            interpreter.inliner.poison(expr.name.lexeme);
+        }
         return null;
     }
 
@@ -53,22 +62,34 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void>{
     public Void visitBinaryExpr(Expr.Binary expr) {
         resolve(expr.left);
         resolve(expr.right);
+        if (interpreter.profile != null) {
+            interpreter.profile.seed(expr);
+        }
         return null;
     }
 
     @Override
     public Void visitCallExpr(Expr.Call expr) {
         resolve(expr.callee);
+        if (expr.callee instanceof Expr.Variable && !isLocal(((Expr.Variable) expr.callee).name)) {
+            interpreter.inliner.globalCallee((Expr.Variable) expr.callee);
+        }
 
         for (Expr argument : expr.arguments) {
             resolve(argument);
         }
+        if (interpreter.profile != null) {
+            interpreter.profile.seed(expr);
+        }
         return null;
     }
 
     @Override
     public Void visitGetExpr(Expr.Get expr) {
         resolve(expr.object);
+        if (interpreter.profile != null) {
+            interpreter.profile.seed(expr);
+        }
         return null;
     }
 
@@ -105,6 +126,8 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void>{
         } else if (currentClass != ClassType.SUBCLASS) {
             Lox.error(expr.keyword,
                     "Cannot use 'super' in a class with no superclass.");
+        } else {
+            currentSupers.add(expr);
         }
 
         resolveLocal(expr, expr.keyword);
@@ -129,7 +152,7 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void>{
 
     @Override
     public Void visitVariableExpr(Expr.Variable expr) {
-        if (!scopes.isEmpty() && scopes.peek().get(expr.name.lexeme).equals(Boolean.FALSE)) {
+        if (!scopes.isEmpty() && Boolean.FALSE.equals(scopes.peek().get(expr.name.lexeme))) {
             Lox.error(expr.name, "Cannot read local variable in its own initializer.");
         }
 
@@ -139,10 +162,30 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void>{
 
     @Override
     public Void visitKeywordExpr(Expr.Keyword expr) {
-        if (!currentLoop) {
-            Lox.error(expr.name, "Cannot use '" +
-                    expr.name.lexeme.toLowerCase() + "' outside a loop.");
-        }
+        // 单独作为语句的break和continue在visitExpressionStmt中检查
+        Lox.error(expr.name, "Cannot use '" +
+                expr.name.lexeme.toLowerCase() + "' inside an expression.");
+        return null;
+    }
+
+    @Override
+    public Void visitInlineExpr(Expr.Inline expr) {
+        resolve(expr.call);
+        return null;
+    }
+
+    @Override
+    public Void visitIndexExpr(Expr.Index expr) {
+        resolve(expr.object);
+        resolve(expr.index);
+        return null;
+    }
+
+    @Override
+    public Void visitIndexSetExpr(Expr.IndexSet expr) {
+        resolve(expr.object);
+        resolve(expr.index);
+        resolve(expr.value);
         return null;
     }
 
@@ -162,6 +205,15 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void>{
         expr.accept(this);
     }
 
+    private boolean isLocal(Token name) {
+        for (int i = scopes.size() - 1; i >= 0; i--) {
+            if (scopes.get(i).containsKey(name.lexeme)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private void resolveLocal(Expr expr, Token name) {
         for (int i = scopes.size() - 1; i >= 0; i--) {
             if (scopes.get(i).containsKey(name.lexeme)) {
@@ -186,9 +238,15 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void>{
     @Override
     public Void visitClassStmt(Stmt.Class stmt) {
         ClassType enclosingClass = currentClass;
+        List<Expr.Super> enclosingSupers = currentSupers;
         currentClass = ClassType.CLASS;
+        currentSupers = new ArrayList<>();
 
         declare(stmt.name);
+        define(stmt.name);
+        if (scopes.isEmpty()) {
+            interpreter.inliner.poison(stmt.name.lexeme);
+        }
 
         if (stmt.superclass != null &&
                 stmt.name.lexeme.equals(stmt.superclass.name.lexeme)) {
@@ -206,9 +264,6 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void>{
             scopes.peek().put("super", true);
         }
 
-        beginScope();
-        scopes.peek().put("this", true);
-
         for (Stmt.Function method : stmt.methods) {
             FunctionType declaration = FunctionType.METHOD;
 
@@ -226,26 +281,36 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void>{
             resolveFunction(method, declaration);
         }
 
-        define(stmt.name);
-
-        endScope();
-
         if (stmt.superclass != null) {
             endScope();
+            interpreter.resolveSupers(stmt, currentSupers);
         }
 
         currentClass = enclosingClass;
+        currentSupers = enclosingSupers;
         return null;
     }
 
     @Override
     public Void visitExpressionStmt(Stmt.Expression stmt) {
+        if (stmt.expression instanceof Expr.Keyword) {
+            Token keyword = ((Expr.Keyword) stmt.expression).name;
+            if (!currentLoop) {
+                Lox.error(keyword, "Cannot use '" +
+                        keyword.lexeme.toLowerCase() + "' outside a loop.");
+            }
+            return null;
+        }
+
         resolve(stmt.expression);
         return null;
     }
 
     @Override
     public Void visitFunctionStmt(Stmt.Function stmt) {
+        if (scopes.isEmpty()) {
+            interpreter.inliner.declare(stmt);
+        }
         declare(stmt.name);
         define(stmt.name);
 
@@ -280,6 +345,10 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void>{
                 Lox.error(stmt.keyword, "Cannot return a value from an initializer.");
             }
 
+            if (stmt.value instanceof Expr.Call) {
+                interpreter.resolveTailCall((Expr.Call) stmt.value);
+            }
+
             resolve(stmt.value);
         }
         return null;
@@ -287,6 +356,9 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void>{
 
     @Override
     public Void visitVarStmt(Stmt.Var stmt) {
+        if (scopes.isEmpty()) {
+            interpreter.inliner.poison(stmt.name.lexeme);
+        }
         declare(stmt.name);
 
         if (stmt.initializer != null) {
@@ -304,6 +376,9 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void>{
 
         resolve(stmt.condition);
         resolve(stmt.body);
+        if (stmt.increment != null) {
+            resolve(stmt.increment);
+        }
 
         currentLoop = enclosingLoop;
         return null;
@@ -338,10 +413,18 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void>{
 
     private void resolveFunction(Stmt.Function function, FunctionType type) {
         FunctionType enclosingFunction = currentFunction;
+        boolean enclosingLoop = currentLoop;
         currentFunction = type;
+        // 函数体中的break和continue不能作用于函数外的循环
+        currentLoop = false;
 
         beginScope();
 
+        // this 与参数定义在同一个调用环境中，见LoxFunction.invoke
+        if (type == FunctionType.METHOD || type == FunctionType.INITIALIZER) {
+            scopes.peek().put("this", true);
+        }
+
         for (Token param : function.params) {
             declare(param);
             define(param);
@@ -350,5 +433,6 @@ public class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void>{
         resolve(function.body);
         endScope();
         currentFunction = enclosingFunction;
+        currentLoop = enclosingLoop;
     }
 }
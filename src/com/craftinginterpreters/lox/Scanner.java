@@ -59,7 +59,7 @@ public class Scanner {
             scanToken();
         }
 
-        tokens.add(new Token(EOF, "", null, line));
+        tokens.add(new Token(EOF, "", null, line, current));
         return tokens;
     }
 
@@ -82,6 +82,8 @@ public class Scanner {
             case ')': addToken(RIGHT_PAREN); break;
             case '{': addToken(LEFT_BRACE); break;
             case '}': addToken(RIGHT_BRACE); break;
+            case '[': addToken(LEFT_BRACKET); break;
+            case ']': addToken(RIGHT_BRACKET); break;
             case ',': addToken(COMMA); break;
             case '.': addToken(DOT); break;
             case '-': addToken(match('-') ? MINUS_MINUS : MINUS); break;
@@ -160,7 +162,7 @@ public class Scanner {
      */
     private void addToken(TokenType type, Object literal) {
         String text = source.substring(start, current);
-        tokens.add(new Token(type, text, literal, line));
+        tokens.add(new Token(type, text, literal, line, start));
     }
 
     private void string() {
@@ -182,7 +184,7 @@ public class Scanner {
 
         // 将文本字符串添加进tokens列表中
         String value = source.substring(start + 1, current - 1);
-        addToken(STRING, value);
+        addToken(STRING, StringTable.intern(value));
     }
 
     /**
@@ -0,0 +1,80 @@
+package com.craftinginterpreters.lox;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author Javen-Liu
+ * @version 1.0
+ * @date 2026/10/19 16:02
+ * @github https://github.com/Javen-Liu
+ * 实例的形状（隐藏类）：记录字段名到槽位下标的映射，创建后不再改变。
+ * 按字段添加顺序组成一棵转换树，以相同顺序添加相同字段的实例共享同一个形状，
+ * 每个类有自己的根形状，所以形状也唯一确定了实例的类
+ */
+final class Shape {
+    final LoxClass klass;
+    private final Map<String, Integer> slots;
+    private final Map<String, Shape> transitions = new HashMap<>();
+
+    /**
+     * 剖析文件中的形状描述，第一次使用时生成
+     */
+    private String description;
+
+    /**
+     * 创建类的根形状
+     */
+    Shape(LoxClass klass) {
+        this.klass = klass;
+        this.slots = new HashMap<>();
+    }
+
+    private Shape(Shape parent, String field) {
+        this.klass = parent.klass;
+        this.slots = new HashMap<>(parent.slots);
+        this.slots.put(field, parent.slots.size());
+    }
+
+    /**
+     * 获取字段的槽位
+     * @param field 字段名
+     * @return 槽位下标，字段不存在时返回-1
+     */
+    int indexOf(String field) {
+        Integer index = slots.get(field);
+        return index == null ? -1 : index;
+    }
+
+    int size() {
+        return slots.size();
+    }
+
+    /**
+     * @return 类名和按槽位排列的字段名，例如 Point:x,y
+     */
+    String description() {
+        if (description == null) {
+            String[] fields = new String[slots.size()];
+            for (Map.Entry<String, Integer> entry : slots.entrySet()) {
+                fields[entry.getValue()] = entry.getKey();
+            }
+            description = klass.name + ":" + String.join(",", fields);
+        }
+        return description;
+    }
+
+    /**
+     * 添加一个字段后得到的形状，相同的转换只会创建一次
+     * @param field 新字段名
+     * @return 新的形状
+     */
+    Shape with(String field) {
+        Shape next = transitions.get(field);
+        if (next == null) {
+            next = new Shape(this, field);
+            transitions.put(field, next);
+        }
+        return next;
+    }
+}
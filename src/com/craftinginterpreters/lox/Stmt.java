@@ -148,10 +148,12 @@ abstract class Stmt{
     static class While extends Stmt{
         final Expr condition;
         final Stmt body;
+        final Expr increment;
 
-        While(Expr condition, Stmt body) {
+        While(Expr condition, Stmt body, Expr increment) {
             this.condition = condition;
             this.body = body;
+            this.increment = increment;
         }
 
         @Override
@@ -0,0 +1,103 @@
+package com.craftinginterpreters.lox;
+
+/**
+ * @author Javen-Liu
+ * @version 1.0
+ * @date 2026/10/19 18:10
+ * @github https://github.com/Javen-Liu
+ * 由字符串拼接产生的Lox字符串，多次拼接共享同一个StringBuilder：
+ * 每个StringRope只占用缓冲区的前length个字符，在缓冲区末尾追加不会影响已有的值，
+ * 所以 s = s + piece 每次只追加piece，不再复制整个字符串。
+ * 只有被打印、比较或者交给其他需要String的地方时才生成String，并缓存下来
+ */
+final class StringRope extends LazyString {
+    /**
+     * 拼接结果达到该长度时才使用StringRope，较短的直接生成String，通过 -Dlox.rope.min=n 配置
+     */
+    static final int MIN_LENGTH = Integer.getInteger("lox.rope.min", 64);
+
+    private final StringBuilder buffer;
+    private final int length;
+
+    private StringRope(StringBuilder buffer, int length) {
+        this.buffer = buffer;
+        this.length = length;
+    }
+
+    /**
+     * 拼接两段文本
+     * @param left 左操作数，可以是String、StringRope或者其他值（按String.valueOf转换）
+     * @param right 右操作数的文本
+     * @return String或者StringRope
+     */
+    static Object concat(Object left, String right) {
+        if (left instanceof StringRope) {
+            return ((StringRope) left).append(right);
+        }
+
+        String text = String.valueOf(left);
+        int length = text.length() + right.length();
+        if (length < MIN_LENGTH) {
+            return StringTable.internComputed(text.concat(right));
+        }
+        StringBuilder buffer = new StringBuilder(length * 2).append(text).append(right);
+        return new StringRope(buffer, length);
+    }
+
+    /**
+     * 拼接文本和数值，左操作数是StringRope时数值直接写入缓冲区
+     */
+    static Object concat(Object left, double right) {
+        if (left instanceof StringRope) {
+            StringBuilder target = ((StringRope) left).writable(16);
+            Numbers.append(target, right);
+            return new StringRope(target, target.length());
+        }
+        return concat(left, Numbers.format(right));
+    }
+
+    private StringRope append(String text) {
+        StringBuilder target = writable(text.length());
+        target.append(text);
+        return new StringRope(target, target.length());
+    }
+
+    /**
+     * 获取可以在末尾追加的缓冲区：
+     * 缓冲区已经被从同一个值拼接出的另一个StringRope追加过时，复制一份
+     */
+    private StringBuilder writable(int extra) {
+        if (buffer.length() == length) {
+            return buffer;
+        }
+        return new StringBuilder((length + extra) * 2).append(buffer, 0, length);
+    }
+
+    @Override
+    void appendTo(StringBuilder builder) {
+        String flat = flat();
+        if (flat != null) {
+            builder.append(flat);
+        } else {
+            builder.append(buffer, 0, length);
+        }
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+        }
+        return buffer.charAt(index);
+    }
+
+    @Override
+    String flatten() {
+        return buffer.substring(0, length);
+    }
+}
@@ -0,0 +1,102 @@
+package com.craftinginterpreters.lox;
+
+/**
+ * @author Javen-Liu
+ * @version 1.0
+ * @date 2026/10/19 19:55
+ * @github https://github.com/Javen-Liu
+ * slice和split产生的子串：只记录父字符串和起止位置，不复制字符。
+ * 父字符串很长而子串很短时，子串会让整个父字符串无法回收，这时直接复制出新的String
+ */
+final class StringSlice extends LazyString {
+    /**
+     * 父字符串不超过该长度时总是使用视图，通过 -Dlox.slice.parent=n 配置
+     */
+    static final int MAX_PARENT = Integer.getInteger("lox.slice.parent", 1 << 16);
+
+    /**
+     * 父字符串超过MAX_PARENT时，子串至少占父字符串的1/RATIO才使用视图
+     */
+    private static final int RATIO = 8;
+
+    private final String parent;
+    private final int start;
+    private final int end;
+
+    private StringSlice(String parent, int start, int end) {
+        this.parent = parent;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * 截取子串，调用者需要保证 0 <= start <= end <= text.length()
+     * @param text Lox字符串
+     * @return 子串，可能是StringSlice或String
+     */
+    static Object of(Object text, int start, int end) {
+        if (start == 0 && end == ((CharSequence) text).length()) {
+            return text;
+        }
+        if (start == end) {
+            return "";
+        }
+
+        // 子串的子串直接指向最初的父字符串
+        String parent;
+        int offset = 0;
+        if (text instanceof StringSlice) {
+            StringSlice slice = (StringSlice) text;
+            parent = slice.parent;
+            offset = slice.start;
+        } else {
+            parent = text.toString();
+        }
+
+        int length = end - start;
+        if (parent.length() > MAX_PARENT && length * (long) RATIO < parent.length()) {
+            return parent.substring(offset + start, offset + end);
+        }
+        return new StringSlice(parent, offset + start, offset + end);
+    }
+
+    /**
+     * 在子串中从from开始查找，不生成String
+     * @return 相对子串起点的位置，找不到时返回-1
+     */
+    int indexOf(String needle, int from) {
+        int index = parent.indexOf(needle, start + from);
+        if (index < 0 || index + needle.length() > end) {
+            return -1;
+        }
+        return index - start;
+    }
+
+    @Override
+    void appendTo(StringBuilder builder) {
+        builder.append(parent, start, end);
+    }
+
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= end - start) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + (end - start));
+        }
+        return parent.charAt(start + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return (CharSequence) of(this, start, end);
+    }
+
+    @Override
+    String flatten() {
+        return parent.substring(start, end);
+    }
+}
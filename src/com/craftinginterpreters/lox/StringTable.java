@@ -0,0 +1,85 @@
+package com.craftinginterpreters.lox;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author Javen-Liu
+ * @version 1.0
+ * @date 2026/10/19 19:20
+ * @github https://github.com/Javen-Liu
+ * 运行时字符串表：字符串字面量（以及开启后的较短拼接结果）在这里驻留，
+ * 内容相同的字符串共享同一个对象，isEqual可以先按引用比较，
+ * 哈希值也只在共享的对象上计算一次。
+ * 通过 -Dlox.intern.stats=true 在执行结束时输出命中率和占用内存
+ */
+final class StringTable {
+    /**
+     * 是否驻留拼接产生的字符串，通过 -Dlox.intern.computed=true 开启
+     */
+    static final boolean INTERN_COMPUTED = Boolean.getBoolean("lox.intern.computed");
+
+    /**
+     * 表中字符串的数量上限，达到后拼接结果不再加入，通过 -Dlox.intern.max=n 配置
+     */
+    private static final int MAX_SIZE = Integer.getInteger("lox.intern.max", 1 << 16);
+
+    /**
+     * 估算内存时每个字符串的固定开销：String对象、char[]/byte[]头和HashMap的Entry
+     */
+    private static final int ENTRY_OVERHEAD = 24 + 16 + 32;
+
+    private static final Map<String, String> TABLE = new HashMap<>();
+    private static long lookups = 0;
+    private static long hits = 0;
+    private static long chars = 0;
+
+    private StringTable() {
+    }
+
+    /**
+     * 驻留字符串字面量
+     * @param value 字面量的值
+     * @return 表中内容相同的字符串
+     */
+    static String intern(String value) {
+        return lookup(value, true);
+    }
+
+    /**
+     * 驻留拼接结果，未开启或者表已满时原样返回
+     * @param value 拼接结果
+     * @return 表中内容相同的字符串，或者value本身
+     */
+    static String internComputed(String value) {
+        if (!INTERN_COMPUTED) {
+            return value;
+        }
+        return lookup(value, TABLE.size() < MAX_SIZE);
+    }
+
+    private static String lookup(String value, boolean add) {
+        lookups++;
+        String interned = TABLE.get(value);
+        if (interned != null) {
+            hits++;
+            return interned;
+        }
+
+        if (add) {
+            TABLE.put(value, value);
+            chars += value.length();
+        }
+        return value;
+    }
+
+    /**
+     * 输出统计信息到标准错误
+     */
+    static void report() {
+        long bytes = TABLE.size() * (long) ENTRY_OVERHEAD + chars * 2;
+        double rate = lookups == 0 ? 0 : hits * 100.0 / lookups;
+        System.err.println("[intern] strings " + TABLE.size() + ", lookups " + lookups +
+                ", hits " + hits + " (" + String.format("%.1f", rate) + "%), ~" + bytes + " bytes");
+    }
+}
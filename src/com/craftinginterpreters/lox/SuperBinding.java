@@ -0,0 +1,43 @@
+package com.craftinginterpreters.lox;
+
+/**
+ * @author Javen-Liu
+ * @version 1.0
+ * @date 2026/10/19 17:05
+ * @github https://github.com/Javen-Liu
+ * super 表达式在类定义时的静态绑定：父类的方法表在定义后不再变化，
+ * 所以 super.m 指向的方法可以在定义类时查好。
+ * 同一个类声明被多次执行且父类不同时（例如在函数中声明的类），绑定失效，
+ * 此后每次都从环境中查找父类
+ */
+final class SuperBinding {
+    /**
+     * super 所在作用域的距离，this 位于其内一层
+     */
+    int distance;
+    LoxFunction method;
+    private LoxClass superclass;
+    private boolean megamorphic = false;
+
+    /**
+     * 类定义时调用，记录父类中对应的方法，方法不存在时为null，在执行时报错
+     */
+    void bind(LoxClass superclass, String name, int distance) {
+        this.distance = distance;
+        if (megamorphic || this.superclass == superclass) {
+            return;
+        }
+
+        if (this.superclass != null) {
+            megamorphic = true;
+            method = null;
+            return;
+        }
+        this.superclass = superclass;
+        this.method = superclass.findMethod(name);
+    }
+
+    boolean isBound() {
+        return superclass != null && !megamorphic;
+    }
+}
@@ -0,0 +1,143 @@
+package com.craftinginterpreters.lox;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * @author Javen-Liu
+ * @version 1.0
+ * @date 2026/10/19 10:40
+ * @github https://github.com/Javen-Liu
+ * 分层执行：为每个函数声明记录调用次数，为每个while循环记录回边次数，
+ * 计数越过阈值后在后台线程中交给Optimizer生成更快的语法树，
+ * 生成完毕后在下一次调用（或下一次回边）时由解释器线程原子地替换
+ */
+class TierManager {
+    /**
+     * 晋升阈值，通过 -Dlox.tier.threshold=n 配置，小于等于0时关闭分层执行
+     */
+    static final int THRESHOLD = Integer.getInteger("lox.tier.threshold", 1000);
+
+    private final Interpreter interpreter;
+    private final Map<Stmt, HotCode> hotCodes = new HashMap<>();
+    private ExecutorService compiler;
+
+    TierManager(Interpreter interpreter) {
+        this.interpreter = interpreter;
+    }
+
+    /**
+     * 函数被调用时获取其当前应执行的函数体
+     * @param declaration 函数声明
+     * @return 若已晋升则返回优化后的函数体，否则返回原函数体
+     */
+    @SuppressWarnings("unchecked")
+    List<Stmt> body(Stmt.Function declaration) {
+        if (THRESHOLD <= 0) {
+            return declaration.body;
+        }
+
+        Object promoted = lookup(declaration).tick();
+        return promoted == null ? declaration.body : (List<Stmt>) promoted;
+    }
+
+    /**
+     * 获取循环的计数器，关闭分层执行时返回null
+     */
+    HotCode loop(Stmt.While stmt) {
+        return THRESHOLD <= 0 ? null : lookup(stmt);
+    }
+
+    private HotCode lookup(Stmt code) {
+        HotCode hot = hotCodes.get(code);
+        if (hot == null) {
+            hot = new HotCode(code);
+            hotCodes.put(code, hot);
+
+            // 剖析信息表明上次运行中已是热点的函数，不再预热，直接晋升
+            Profile profile = interpreter.profile;
+            if (profile != null && code instanceof Stmt.Function
+                    && profile.isHot((Stmt.Function) code)) {
+                hot.submitted = true;
+                hot.ready = compile(code);
+            }
+        }
+        return hot;
+    }
+
+    private Compiled compile(Stmt code) {
+        Optimizer optimizer = new Optimizer(interpreter.inliner);
+        Object optimized;
+        if (code instanceof Stmt.Function) {
+            optimized = optimizer.optimize(((Stmt.Function) code).body);
+        } else {
+            optimized = optimizer.optimizeLoop((Stmt.While) code);
+        }
+        return new Compiled(optimized, optimizer.aliases());
+    }
+
+    private void submit(HotCode hot) {
+        if (compiler == null) {
+            compiler = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "lox-tier-compiler");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        compiler.execute(() -> hot.ready = compile(hot.code));
+    }
+
+    /**
+     * 后台编译的结果，在解释器线程安装之前不会被执行
+     */
+    private static final class Compiled {
+        final Object code;
+        final Map<Expr, Expr> aliases;
+
+        Compiled(Object code, Map<Expr, Expr> aliases) {
+            this.code = code;
+            this.aliases = aliases;
+        }
+    }
+
+    /**
+     * 单个函数或循环的热度信息，除ready外只会被解释器线程访问
+     */
+    final class HotCode {
+        private final Stmt code;
+        private int counter = 0;
+        private boolean submitted = false;
+        private volatile Compiled ready;
+        private Object promoted;
+
+        private HotCode(Stmt code) {
+            this.code = code;
+        }
+
+        /**
+         * 计数一次，越过阈值时提交后台编译，编译完成时安装
+         * @return 已晋升的代码，尚未晋升时返回null
+         */
+        Object tick() {
+            if (promoted != null) {
+                return promoted;
+            }
+
+            if (!submitted && ++counter >= THRESHOLD) {
+                submitted = true;
+                submit(this);
+            }
+
+            Compiled compiled = ready;
+            if (compiled != null) {
+                interpreter.resolveAliases(compiled.aliases);
+                promoted = compiled.code;
+            }
+            return promoted;
+        }
+    }
+}
@@ -32,11 +32,21 @@ public class Token {
      */
     final int line;
 
+    /**
+     * 记录当前词汇在源码中的起始偏移量，源码不变时可以稳定地标识一个位置
+     */
+    final int offset;
+
     public Token(TokenType type, String lexeme, Object literal, int line) {
+        this(type, lexeme, literal, line, -1);
+    }
+
+    public Token(TokenType type, String lexeme, Object literal, int line, int offset) {
         this.type = type;
         this.lexeme = lexeme;
         this.literal = literal;
         this.line = line;
+        this.offset = offset;
     }
 
     @Override
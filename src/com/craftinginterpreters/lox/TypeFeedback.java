@@ -0,0 +1,20 @@
+package com.craftinginterpreters.lox;
+
+/**
+ * @author Javen-Liu
+ * @version 1.0
+ * @date 2026/10/19 23:40
+ * @github https://github.com/Javen-Liu
+ * 二元运算位置的类型反馈，由剖析文件在解析时填入，没有剖析信息时两个标记都为false。
+ * numeric：上一次运行中只见过两个数字，== 和 != 也走不装箱的数值路径；
+ * generic：从未见过两个数字（例如字符串拼接），直接走通用路径，不先尝试数值路径
+ */
+final class TypeFeedback {
+    boolean numeric;
+    boolean generic;
+
+    void copy(TypeFeedback other) {
+        numeric = other.numeric;
+        generic = other.generic;
+    }
+}
@@ -20,18 +20,21 @@ public class GenerateAst {
         String outputDir = args[0];
         defineAst(outputDir, "Expr", Arrays.asList(
                 "Assign   : Token name, Expr value",
-                "Binary   : Expr left, Token operator, Expr right",
-                "Call     : Expr callee, Token paren, List<Expr> arguments",
-                "Get      : Expr object, Token name",
+                "Binary   : Expr left, Token operator, Expr right | TypeFeedback feedback",
+                "Call     : Expr callee, Token paren, List<Expr> arguments | CallCache cache",
+                "Get      : Expr object, Token name | PropertyCache cache",
                 "Grouping : Expr expression",
                 "Literal  : Object value",
                 "Logic    : Expr left, Token operator, Expr right",
-                "Set      : Expr object, Token name, Expr value",
-                "Super    : Token keyword, Token method",
+                "Set      : Expr object, Token name, Expr value | PropertyCache cache",
+                "Super    : Token keyword, Token method | SuperBinding binding",
                 "This     : Token keyword",
                 "Unary    : Token operator, Expr right",
                 "Variable : Token name",
-                "Keyword  : Token name"
+                "Keyword  : Token name",
+                "Inline   : Call call, Stmt.Function function, Expr body",
+                "Index    : Expr object, Token bracket, Expr index",
+                "IndexSet : Expr object, Token bracket, Expr index, Expr value"
         ));
 
         defineAst(outputDir, "Stmt", Arrays.asList(
@@ -43,7 +46,7 @@ public class GenerateAst {
                 "Print      : Expr expression",
                 "Return     : Token keyword, Expr value",
                 "Var        : Token name, Expr initializer",
-                "While      : Expr condition, Stmt body"
+                "While      : Expr condition, Stmt body, Expr increment"
         ));
     }
 
@@ -94,17 +97,27 @@ public class GenerateAst {
      * @param writer 输出写出流
      * @param baseName 父抽象类名称：Expr
      * @param className 子类的名称
-     * @param fieldList 子类中的成员变量
+     * @param fieldList 子类中的成员变量，"|" 之后为缓存变量
      */
     private static void defineType(PrintWriter writer, String baseName,
                                    String className, String fieldList) {
         writer.println("    static class " + className + " extends " + baseName + "{");
+
+        // "|" 之后的是缓存变量，不作为构造参数，每个节点持有一个独立的实例
+        String[] parts = fieldList.split("\\|");
+        fieldList = parts[0].trim();
         String[] fields = fieldList.split(", ");
 
         // 变量
         for (String field : fields) {
             writer.println("        final " + field + ";");
         }
+        if (parts.length > 1) {
+            for (String cache : parts[1].trim().split(", ")) {
+                String type = cache.split(" ")[0];
+                writer.println("        final " + cache + " = new " + type + "();");
+            }
+        }
         writer.println();
 
         // 创建constructor